@@ -25,9 +25,35 @@ java {
         test {
             java.setSrcDirs(listOf("src/test"))
         }
+        create("jmh") {
+            java.setSrcDirs(listOf("src/jmh"))
+            compileClasspath += main.get().output + configurations.compileClasspath.get()
+            runtimeClasspath += main.get().output + configurations.runtimeClasspath.get()
+        }
     }
 }
 
+val jmhVersion = "1.37"
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:$jmhVersion")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:$jmhVersion")
+}
+
+tasks.named<JavaCompile>("compileJmhJava") {
+    options.release.set(11)
+}
+
+// runs the benchmarks with the allocation profiler, the JMH options can be passed as -PjmhArgs="..."
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks of the dictionaries."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args("-prof", "gc")
+    (project.findProperty("jmhArgs") as String?)?.let { args(it.split(" ").filter(String::isNotBlank)) }
+}
+
 tasks.compileJava {
     options.release.set(11)
 }
@@ -0,0 +1,117 @@
+package ru.hse.java.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The maps and the keys compared by the benchmarks.
+ * The enums are public, since the code generated by JMH sets the parameters from another package.
+ */
+public final class BenchmarkSetup {
+
+    /**
+     * The compared implementations, each with its default load factors.
+     */
+    public enum Implementation {
+        DICTIONARY_IMPL {
+            @Override
+            Map<Object, Object> create() {
+                return new DictionaryImpl<>();
+            }
+        },
+        HASH_MAP {
+            @Override
+            Map<Object, Object> create() {
+                return new HashMap<>();
+            }
+        },
+        CUCKOO_DICTIONARY {
+            @Override
+            Map<Object, Object> create() {
+                return new CuckooDictionary<>();
+            }
+        },
+        SWISS_DICTIONARY {
+            @Override
+            Map<Object, Object> create() {
+                return new SwissDictionary<>();
+            }
+        };
+
+        abstract Map<Object, Object> create();
+    }
+
+    /**
+     * The implementations which accept a max load factor, the min one of {@link DictionaryImpl} is a quarter of it.
+     */
+    public enum TunableImplementation {
+        DICTIONARY_IMPL {
+            @Override
+            Map<Object, Object> create(double loadFactor) {
+                return new DictionaryImpl<>(16, loadFactor / 4, loadFactor);
+            }
+        },
+        HASH_MAP {
+            @Override
+            Map<Object, Object> create(double loadFactor) {
+                return new HashMap<>(16, (float) loadFactor);
+            }
+        };
+
+        abstract Map<Object, Object> create(double loadFactor);
+    }
+
+    /**
+     * The types of keys: boxed numbers whose equals is cheap, and strings whose hash codes are cached
+     * but whose equals compares the characters, the long ones share a prefix.
+     */
+    public enum KeyType {
+        INTEGER {
+            @Override
+            Object create(int id) {
+                return id;
+            }
+        },
+        SHORT_STRING {
+            @Override
+            Object create(int id) {
+                return "k" + id;
+            }
+        },
+        LONG_STRING {
+            @Override
+            Object create(int id) {
+                return "ru.hse.java.util.benchmark.configuration.property." + id;
+            }
+        };
+
+        abstract Object create(int id);
+    }
+
+    private BenchmarkSetup() {
+    }
+
+    /**
+     * @return the distinct keys in a random order, the first count of them are the present ones.
+     */
+    static Object[] createKeys(KeyType keyType, int count, long seed) {
+        Random random = new Random(seed);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = i;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+        }
+        Object[] keys = new Object[count];
+        for (int i = 0; i < count; i++) {
+            // the ids are spread, so the integer keys are not consecutive
+            keys[i] = keyType.create(HashSpreader.mix(ids[i]));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,58 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the insertions into an empty map including its resizes,
+ * the allocation rate reported by the GC profiler is mostly the tables and the entries.
+ * The maps have their default load factors, the sweep over them is {@link LoadFactorBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BuildBenchmark {
+    private static final long SEED = 2021;
+
+    @Param({"DICTIONARY_IMPL", "HASH_MAP", "CUCKOO_DICTIONARY", "SWISS_DICTIONARY"})
+    private BenchmarkSetup.Implementation implementation;
+
+    @Param({"INTEGER", "SHORT_STRING", "LONG_STRING"})
+    private BenchmarkSetup.KeyType keyType;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    private Object[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = BenchmarkSetup.createKeys(keyType, size, SEED);
+    }
+
+    @Benchmark
+    public Map<Object, Object> build() {
+        Map<Object, Object> map = implementation.create();
+        for (Object key : keys) {
+            map.put(key, key);
+        }
+        return map;
+    }
+
+    /**
+     * Removes all the mappings one by one, so the table shrinks as its policy decides.
+     */
+    @Benchmark
+    public Map<Object, Object> buildAndDrain() {
+        Map<Object, Object> map = build();
+        for (Object key : keys) {
+            map.remove(key);
+        }
+        return map;
+    }
+}
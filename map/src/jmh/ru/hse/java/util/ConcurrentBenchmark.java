@@ -0,0 +1,140 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shows how the reads of a shared map scale with the number of threads.
+ * The same lookups are run by 1, 2, 4 and 8 threads; a map whose reads do not take a lock
+ * keeps the time per operation flat while there are free cores, a map behind one lock does not.
+ * The read-write group runs three readers against one writer changing the same keys.
+ * The numbers are meaningful only on a machine with at least as many cores as threads,
+ * for example -PjmhArgs="ConcurrentBenchmark -p implementation=CONCURRENT_DICTIONARY".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+    private static final int OPERATIONS = 1 << 16;
+    private static final long SEED = 2021;
+
+    /**
+     * The compared maps, they are public, since the code generated by JMH sets the parameters from another package.
+     */
+    public enum Implementation {
+        CONCURRENT_DICTIONARY {
+            @Override
+            Map<Object, Object> create() {
+                return new ConcurrentDictionary<>();
+            }
+        },
+        CONCURRENT_HASH_MAP {
+            @Override
+            Map<Object, Object> create() {
+                return new ConcurrentHashMap<>();
+            }
+        },
+        SYNCHRONIZED_DICTIONARY {
+            @Override
+            Map<Object, Object> create() {
+                return Collections.synchronizedMap(new DictionaryImpl<>());
+            }
+        };
+
+        abstract Map<Object, Object> create();
+    }
+
+    @Param({"CONCURRENT_DICTIONARY", "CONCURRENT_HASH_MAP", "SYNCHRONIZED_DICTIONARY"})
+    private Implementation implementation;
+
+    @Param({"INTEGER", "SHORT_STRING"})
+    private BenchmarkSetup.KeyType keyType;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private Map<Object, Object> map;
+    private Object[] lookups;
+
+    /**
+     * Every thread walks the lookups from its own random start, so the threads do not touch the same keys in step.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int position;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            position = new Random().nextInt(OPERATIONS);
+        }
+
+        int next() {
+            position = (position + 1) & (OPERATIONS - 1);
+            return position;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] keys = BenchmarkSetup.createKeys(keyType, size, SEED);
+        map = implementation.create();
+        for (Object key : keys) {
+            map.put(key, key);
+        }
+        Random random = new Random(SEED);
+        lookups = new Object[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            lookups[i] = keys[random.nextInt(size)];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object getOneThread(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Object getTwoThreads(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getFourThreads(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object getEightThreads(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public Object read(Cursor cursor) {
+        return map.get(lookups[cursor.next()]);
+    }
+
+    /**
+     * Replaces the value of a present key, so the size does not change.
+     */
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public Object write(Cursor cursor) {
+        Object key = lookups[cursor.next()];
+        return map.put(key, key);
+    }
+}
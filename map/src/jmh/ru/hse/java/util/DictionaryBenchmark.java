@@ -0,0 +1,138 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the operations on a filled map of the fixed size, the maps have their default load factors.
+ * The lookups and the changed keys are chosen in advance, so the measured loop only indexes an array.
+ * The part of the hits is a parameter of the lookups only, so it does not multiply the grid of the changes
+ * and of the walk; the sweep over the load factors is {@link LoadFactorBenchmark}.
+ * The grid can be narrowed with the -p option of JMH,
+ * for example -PjmhArgs="DictionaryBenchmark.get -p size=1000000 -p keyType=INTEGER".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class DictionaryBenchmark {
+    private static final int OPERATIONS = 1 << 16;
+    // the part of the mixed workload changing the map, the rest are lookups
+    private static final double MIXED_CHANGES = 0.1;
+    private static final long SEED = 2021;
+
+    @Param({"DICTIONARY_IMPL", "HASH_MAP", "CUCKOO_DICTIONARY", "SWISS_DICTIONARY"})
+    private BenchmarkSetup.Implementation implementation;
+
+    @Param({"INTEGER", "SHORT_STRING", "LONG_STRING"})
+    private BenchmarkSetup.KeyType keyType;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    private int size;
+
+    // the first size keys are in the map, the rest are absent from it
+    private Object[] keys;
+    private Map<Object, Object> map;
+    private Object[] changes;
+    private boolean[] isChange;
+    private int cursor = 0;
+
+    /**
+     * The looked up keys, a state of their own, since only the benchmarks with lookups depend on the part of hits.
+     */
+    @State(Scope.Benchmark)
+    public static class Lookups {
+        // the part of the lookups whose keys are present
+        @Param({"1.0", "0.5", "0.0"})
+        private double hitRatio;
+
+        private Object[] lookups;
+
+        @Setup(Level.Trial)
+        public void setUp(DictionaryBenchmark benchmark) {
+            int size = benchmark.size;
+            int absent = benchmark.keys.length - size;
+            Random random = new Random(SEED);
+            lookups = new Object[OPERATIONS];
+            for (int i = 0; i < OPERATIONS; i++) {
+                boolean isHit = random.nextDouble() < hitRatio;
+                lookups[i] = benchmark.keys[isHit ? random.nextInt(size) : size + random.nextInt(absent)];
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = BenchmarkSetup.createKeys(keyType, size + Math.min(size, OPERATIONS), SEED);
+        map = implementation.create();
+        for (int i = 0; i < size; i++) {
+            map.put(keys[i], keys[i]);
+        }
+        Random random = new Random(SEED);
+        changes = new Object[OPERATIONS];
+        isChange = new boolean[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            changes[i] = keys[random.nextInt(size)];
+            isChange[i] = random.nextDouble() < MIXED_CHANGES;
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (OPERATIONS - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public Object get(Lookups lookups) {
+        return map.get(lookups.lookups[next()]);
+    }
+
+    /**
+     * Replaces the value of a present key.
+     */
+    @Benchmark
+    public Object put() {
+        Object key = changes[next()];
+        return map.put(key, key);
+    }
+
+    /**
+     * Removes a present key and puts it back, so the size does not change.
+     */
+    @Benchmark
+    public Object removeAndPut() {
+        Object key = changes[next()];
+        map.remove(key);
+        return map.put(key, key);
+    }
+
+    @Benchmark
+    public Object mixed(Lookups lookups) {
+        int index = next();
+        if (isChange[index]) {
+            Object key = changes[index];
+            map.remove(key);
+            return map.put(key, key);
+        }
+        return map.get(lookups.lookups[index]);
+    }
+
+    /**
+     * Walks all the mappings, the time is per the whole walk.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void iterate(Blackhole blackhole) {
+        for (Entry<Object, Object> entry : map.entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the lookups and the insertions under several max load factors, only for the maps which accept one.
+ * A map of a fixed size ends up in the same table under most of the load factors, so the map is filled
+ * to the last size before its table of the specified capacity grows, and the table is as full as the load factor allows.
+ * For example -PjmhArgs="LoadFactorBenchmark.getAbsent -p capacity=1048576 -p keyType=INTEGER".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class LoadFactorBenchmark {
+    private static final int OPERATIONS = 1 << 16;
+    private static final long SEED = 2021;
+
+    @Param({"DICTIONARY_IMPL", "HASH_MAP"})
+    private BenchmarkSetup.TunableImplementation implementation;
+
+    @Param({"INTEGER", "SHORT_STRING", "LONG_STRING"})
+    private BenchmarkSetup.KeyType keyType;
+
+    // the number of slots of the filled table, a power of two
+    @Param({"131072", "1048576"})
+    private int capacity;
+
+    @Param({"0.5", "0.75", "0.9"})
+    private double loadFactor;
+
+    private Object[] keys;
+    private Map<Object, Object> map;
+    private Object[] hits;
+    private Object[] misses;
+    private int cursor = 0;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // both maps grow once the size reaches the load factor times the capacity
+        int size = (int) Math.ceil(loadFactor * capacity) - 1;
+        Object[] allKeys = BenchmarkSetup.createKeys(keyType, size + OPERATIONS, SEED);
+        keys = new Object[size];
+        System.arraycopy(allKeys, 0, keys, 0, size);
+        map = build();
+        Random random = new Random(SEED);
+        hits = new Object[OPERATIONS];
+        misses = new Object[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            hits[i] = keys[random.nextInt(size)];
+            misses[i] = allKeys[size + i];
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (OPERATIONS - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public Object getPresent() {
+        return map.get(hits[next()]);
+    }
+
+    /**
+     * A miss probes the whole cluster of its home slot, so it is the lookup most sensitive to the load factor.
+     */
+    @Benchmark
+    public Object getAbsent() {
+        return map.get(misses[next()]);
+    }
+
+    /**
+     * Inserts the keys into an empty map including its resizes, the time is per the whole build.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<Object, Object> build() {
+        Map<Object, Object> result = implementation.create(loadFactor);
+        for (Object key : keys) {
+            result.put(key, key);
+        }
+        return result;
+    }
+}
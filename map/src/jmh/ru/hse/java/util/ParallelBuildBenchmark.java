@@ -0,0 +1,83 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link DictionaryImpl#parallelCopyOf} on pools of several sizes with the insertions one by one
+ * as in {@link BuildBenchmark#build()}. The parameters of the pool are kept out of {@link BuildBenchmark}
+ * and in a separate state, so they multiply only the grid of the parallel copy.
+ * The speedup is bounded by the number of cores of the machine,
+ * for example -PjmhArgs="ParallelBuildBenchmark -p size=1000000 -p keyType=INTEGER".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ParallelBuildBenchmark {
+    private static final long SEED = 2021;
+
+    @Param({"INTEGER", "SHORT_STRING", "LONG_STRING"})
+    private BenchmarkSetup.KeyType keyType;
+
+    @Param({"100000", "1000000", "10000000"})
+    private int size;
+
+    private Entry<Object, Object>[] entries;
+
+    /**
+     * The pool is created once per trial, so its threads are started outside of the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "2", "4", "8"})
+        private int parallelism;
+
+        private ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Object[] keys = BenchmarkSetup.createKeys(keyType, size, SEED);
+        entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new SimpleImmutableEntry<>(keys[i], keys[i]);
+        }
+    }
+
+    /**
+     * The sequential baseline.
+     */
+    @Benchmark
+    public Map<Object, Object> build() {
+        Map<Object, Object> map = new DictionaryImpl<>();
+        for (Entry<Object, Object> entry : entries) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Map<Object, Object> parallelCopyOf(Pool pool) {
+        return DictionaryImpl.parallelCopyOf(Arrays.spliterator(entries), pool.pool);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.hse.java.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the latency of single changes while the dictionary grows to the specified size and drains back,
+ * so every iteration goes through many resizes in both directions.
+ * The sampled percentiles show the tail: a resize at once moves all the mappings in one operation,
+ * an incremental one spreads the moves over the following operations.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class ResizeBenchmark {
+
+    @Param({"AT_ONCE", "INCREMENTAL"})
+    private DictionaryImpl.ResizeMode resizeMode;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private Integer[] keys;
+    private DictionaryImpl<Integer, Integer> dict;
+    private int cursor;
+    private boolean isGrowing;
+
+    @Setup(Level.Trial)
+    public void setUpKeys() {
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        dict = new DictionaryImpl<>(16, 0.25, 0.75, HashSpreader.MURMUR, resizeMode);
+        cursor = 0;
+        isGrowing = true;
+    }
+
+    @Benchmark
+    public Integer change() {
+        Integer key = keys[cursor];
+        Integer result = isGrowing ? dict.put(key, key) : dict.remove(key);
+        if (++cursor == size) {
+            cursor = 0;
+            isGrowing = !isGrowing;
+        }
+        return result;
+    }
+}
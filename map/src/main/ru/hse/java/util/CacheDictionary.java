@@ -0,0 +1,399 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Dictionary with a bounded total weight of the mappings.
+ * The key can not be null. The value can not be null.
+ * When the total weight exceeds the maximum, the mappings chosen by the {@link EvictionPolicy} are evicted.
+ * The mappings are stored in a {@link DictionaryImpl} as nodes which also serve as the links
+ * of the policy queues, so a lookup reorders the queues without any allocation.
+ * Only get, put and the compute-like methods count as accesses, containsKey and the views do not.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class CacheDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private final DictionaryImpl<K, Node<K, V>> index = new DictionaryImpl<>();
+    private final EvictionPolicy<K, V> policy;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long maximumWeight;
+    private long weight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * Computes the weight of a mapping, the weight of a mapping is fixed while its value is not replaced.
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    /**
+     * The mapping of the cache, it is also an element of an intrusive queue of the eviction policy.
+     */
+    public static final class Node<K, V> {
+        private final K key;
+        private final int hash;
+        private V value;
+        private long weight;
+        Node<K, V> previous;
+        Node<K, V> next;
+        // the queue of the policy which contains the node
+        int queue;
+
+        private Node(K key, V value, long weight) {
+            this.key = key;
+            this.hash = HashSpreader.mix(key.hashCode());
+            this.value = value;
+            this.weight = weight;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+
+        /**
+         * @return the spread hash code of the key.
+         */
+        public int hash() {
+            return hash;
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the cache
+         * if the cache still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return super.setValue(value);
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private final Iterator<Node<K, V>> delegate = index.values().iterator();
+        private Node<K, V> last = null;
+
+        protected abstract T extract(Node<K, V> node);
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public T next() throws NoSuchElementException {
+            last = delegate.next();
+            return extract(last);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            delegate.remove();
+            detach(last);
+            last = null;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(Node<K, V> node) {
+                    return new DictionaryEntry(node.key, node.value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(Node<K, V> node) {
+                    return node.key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(Node<K, V> node) {
+                    return node.value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return index.size();
+        }
+    }
+
+    /**
+     * Constructs an empty cache holding at most the specified number of mappings.
+     * @param maximumSize -- the maximal number of mappings.
+     * @param policy -- the eviction policy, it must not be shared with other caches.
+     * @throws IllegalArgumentException -- if the maximum size is negative or the policy is null.
+     */
+    public CacheDictionary(long maximumSize, @NotNull EvictionPolicy<K, V> policy) throws IllegalArgumentException {
+        this(maximumSize, (key, value) -> 1, policy);
+    }
+
+    /**
+     * Constructs an empty cache whose mappings weigh at most the specified weight in total.
+     * @param maximumWeight -- the maximal total weight of the mappings.
+     * @param weigher -- the function computing the weight of a mapping.
+     * @param policy -- the eviction policy, it must not be shared with other caches.
+     * @throws IllegalArgumentException -- if the maximum weight is negative or
+     *                                     the weigher or the policy is null.
+     */
+    public CacheDictionary(long maximumWeight, @NotNull Weigher<? super K, ? super V> weigher,
+                           @NotNull EvictionPolicy<K, V> policy) throws IllegalArgumentException {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("the maximum weight is negative: " + maximumWeight);
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("the weigher is null");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("the policy is null");
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.policy = policy;
+        policy.setMaximumWeight(maximumWeight);
+    }
+
+    private long weigh(K key, V value) throws IllegalArgumentException {
+        long result = weigher.weigh(key, value);
+        if (result < 0) {
+            throw new IllegalArgumentException("the weight is negative: " + result);
+        }
+        return result;
+    }
+
+    /**
+     * Forgets the node which is already removed from the index.
+     */
+    private void detach(Node<K, V> node) {
+        policy.onRemove(node);
+        weight -= node.weight;
+    }
+
+    private void evict() {
+        while (weight > maximumWeight) {
+            Node<K, V> victim = policy.selectVictim();
+            index.remove(victim.key);
+            detach(victim);
+            evictionCount++;
+        }
+    }
+
+    /**
+     * @return the number of mappings in this cache.
+     */
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Does not count as an access.
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this cache contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Counts a hit or a miss, a hit is reported to the eviction policy.
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this cache contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = index.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        policy.onAccess(node);
+        return node.value;
+    }
+
+    /**
+     * Puts the mapping in this cache and evicts mappings while the cache is too heavy,
+     * the put mapping itself may be evicted.
+     * @param key -- the key of the mapping.
+     * @param value -- the value of the mapping.
+     * @return previous value if this cache contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null
+     *                                  or the weight of the mapping is negative.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+        long newWeight = weigh(key, value);
+        Node<K, V> node = index.get(key);
+        V result = null;
+        if (node == null) {
+            node = new Node<>(key, value, newWeight);
+            index.put(key, node);
+            policy.onInsert(node);
+        } else {
+            result = node.value;
+            node.value = value;
+            weight -= node.weight;
+            if (node.weight != newWeight) {
+                policy.onRemove(node);
+                node.weight = newWeight;
+                policy.onInsert(node);
+            } else {
+                policy.onAccess(node);
+            }
+        }
+        weight += newWeight;
+        evict();
+        return result;
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this cache contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        Node<K, V> node = index.remove(key);
+        if (node == null) {
+            return null;
+        }
+        detach(node);
+        return node.value;
+    }
+
+    /**
+     * Removes all of the mappings from this cache, the statistics is kept.
+     */
+    @Override
+    public void clear() {
+        for (Node<K, V> node : index.values()) {
+            policy.onRemove(node);
+        }
+        index.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return the total weight of the mappings.
+     */
+    public long weight() {
+        return weight;
+    }
+
+    /**
+     * @return the number of lookups which found a mapping.
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups which found no mapping.
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of mappings evicted by the policy.
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return a set view of the keys contained in this cache.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this cache.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this cache.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.hse.java.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts objects to bytes and back for the dictionaries which store their mappings outside of the heap.
+ * Equal objects must be encoded to equal bytes and different objects to different bytes,
+ * since such dictionaries compare and hash the encoded keys instead of calling equals and hashCode.
+ * @param <T> -- the type of encoded objects.
+ */
+public interface Codec<T> {
+
+    /**
+     * UTF-8 encoding of strings. A string with a lone surrogate is rejected:
+     * UTF-8 would replace the surrogate by '?', so different strings would get equal bytes.
+     */
+    Codec<String> STRING = new Codec<>() {
+        @Override
+        public byte[] encode(String value) throws IllegalArgumentException {
+            for (int i = 0; i < value.length(); i++) {
+                char symbol = value.charAt(i);
+                if (Character.isHighSurrogate(symbol) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    i++;
+                } else if (Character.isSurrogate(symbol)) {
+                    throw new IllegalArgumentException("the string has a lone surrogate at " + i);
+                }
+            }
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+
+    /**
+     * The bytes themselves, a decoded array is a copy.
+     * A dictionary using this codec for the keys finds a byte array key by its content.
+     */
+    Codec<byte[]> BYTES = new Codec<>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value.clone();
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer buffer) {
+            byte[] result = new byte[buffer.remaining()];
+            buffer.get(result);
+            return result;
+        }
+    };
+
+    /**
+     * Big-endian four bytes of an int.
+     */
+    Codec<Integer> INTEGER = new Codec<>() {
+        @Override
+        public byte[] encode(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+        }
+
+        @Override
+        public Integer decode(ByteBuffer buffer) {
+            return buffer.getInt();
+        }
+    };
+
+    /**
+     * Big-endian eight bytes of a long.
+     */
+    Codec<Long> LONG = new Codec<>() {
+        @Override
+        public byte[] encode(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        }
+
+        @Override
+        public Long decode(ByteBuffer buffer) {
+            return buffer.getLong();
+        }
+    };
+
+    /**
+     * @param value -- the object to encode, not null.
+     * @return the bytes of the object, the caller may keep the array.
+     * @throws IllegalArgumentException -- if the object can not be encoded.
+     */
+    byte[] encode(T value) throws IllegalArgumentException;
+
+    /**
+     * @param buffer -- the buffer whose remaining bytes are exactly the encoding of an object,
+     *                  its content may be overwritten after the call, so the object must not refer to it.
+     * @return the decoded object.
+     */
+    T decode(ByteBuffer buffer);
+}
@@ -0,0 +1,527 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Thread-safe data struct for storage of mappings.
+ * The key can not be null. The value can not be null.
+ * The keys are split into segments by the high bits of their spread hash codes.
+ * Every segment is a chained hash table guarded by its own lock, so writes to different segments
+ * do not block each other. Lookups take no locks at all: the chains are built of nodes
+ * whose keys and links never change, the tables and the values are published through volatile writes.
+ * Iterators of the views are weakly consistent: they never throw ConcurrentModificationException
+ * and reflect some of the changes made after their creation.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class ConcurrentDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, ConcurrentMap<K, V> {
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double DEFAULT_MIN_LOAD_FACTOR = 0.25;
+    private static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 1 << 4;
+    private static final int MAXIMUM_SEGMENTS = 1 << 16;
+
+    // the segments are kept in an Object array, since an array of a generic type can not be created
+    private final Object[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+    private final HashSpreader spreader = HashSpreader.MURMUR;
+
+    private static class Node<K, V> {
+        private final int hash;
+        private final K key;
+        private volatile V value;
+        private final Node<K, V> next;
+
+        public Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Chained hash table, all the writes are made under the monitor of the segment.
+     */
+    private static class Segment<K, V> {
+        private final int minCapacity;
+        private final double minLoadFactor;
+        private final double maxLoadFactor;
+        private volatile AtomicReferenceArray<Node<K, V>> table;
+        private volatile int size = 0;
+
+        public Segment(int capacity, double minLoadFactor, double maxLoadFactor) {
+            this.minCapacity = capacity;
+            this.minLoadFactor = minLoadFactor;
+            this.maxLoadFactor = maxLoadFactor;
+            table = new AtomicReferenceArray<>(capacity);
+        }
+
+        private Node<K, V> findNode(int hash, Object key) {
+            AtomicReferenceArray<Node<K, V>> current = table;
+            Node<K, V> node = current.get(hash & (current.length() - 1));
+            while (node != null && (node.hash != hash || !node.key.equals(key))) {
+                node = node.next;
+            }
+            return node;
+        }
+
+        public V get(int hash, Object key) {
+            Node<K, V> node = findNode(hash, key);
+            return node == null ? null : node.value;
+        }
+
+        /**
+         * @param onlyIfAbsent -- if true, the value of an existing mapping is not replaced.
+         */
+        public synchronized V put(int hash, K key, V value, boolean onlyIfAbsent) {
+            Node<K, V> node = findNode(hash, key);
+            if (node != null) {
+                V result = node.value;
+                if (!onlyIfAbsent) {
+                    node.value = value;
+                }
+                return result;
+            }
+            AtomicReferenceArray<Node<K, V>> current = table;
+            int index = hash & (current.length() - 1);
+            current.set(index, new Node<>(hash, key, value, current.get(index)));
+            size++;
+            rehash();
+            return null;
+        }
+
+        /**
+         * @param expectedValue -- the value which must be replaced, or null if any value can be replaced.
+         */
+        public synchronized V replace(int hash, Object key, Object expectedValue, V value) {
+            Node<K, V> node = findNode(hash, key);
+            if (node == null || (expectedValue != null && !expectedValue.equals(node.value))) {
+                return null;
+            }
+            V result = node.value;
+            node.value = value;
+            return result;
+        }
+
+        /**
+         * The nodes before the removed one are copied, since the links of the nodes never change.
+         * @param expectedValue -- the value which must be removed, or null if any value can be removed.
+         */
+        public synchronized V remove(int hash, Object key, Object expectedValue) {
+            AtomicReferenceArray<Node<K, V>> current = table;
+            int index = hash & (current.length() - 1);
+            Node<K, V> first = current.get(index);
+            Node<K, V> node = first;
+            while (node != null && (node.hash != hash || !node.key.equals(key))) {
+                node = node.next;
+            }
+            if (node == null || (expectedValue != null && !expectedValue.equals(node.value))) {
+                return null;
+            }
+            Node<K, V> head = node.next;
+            for (Node<K, V> copied = first; copied != node; copied = copied.next) {
+                head = new Node<>(copied.hash, copied.key, copied.value, head);
+            }
+            current.set(index, head);
+            size--;
+            rehash();
+            return node.value;
+        }
+
+        public synchronized void clear() {
+            table = new AtomicReferenceArray<>(minCapacity);
+            size = 0;
+        }
+
+        /**
+         * Rebuilds the table into a new array, so concurrent readers keep traversing the old one.
+         */
+        private void rehash() {
+            AtomicReferenceArray<Node<K, V>> current = table;
+            int capacity = current.length();
+            int newCapacity;
+            if (size <= minLoadFactor * capacity && capacity != minCapacity) {
+                newCapacity = capacity / 2;
+            } else if (maxLoadFactor * capacity <= size && capacity < MAXIMUM_CAPACITY) {
+                newCapacity = 2 * capacity;
+            } else {
+                return;
+            }
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(newCapacity);
+            for (int i = 0; i < capacity; i++) {
+                for (Node<K, V> node = current.get(i); node != null; node = node.next) {
+                    int index = node.hash & (newCapacity - 1);
+                    newTable.set(index, new Node<>(node.hash, node.key, node.value, newTable.get(index)));
+                }
+            }
+            table = newTable;
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary.
+         */
+        @Override
+        public V setValue(V value) {
+            ConcurrentDictionary.this.put(getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int segmentIndex = 0;
+        private AtomicReferenceArray<Node<K, V>> currentTable = null;
+        private int bucketIndex = 0;
+        private Node<K, V> nextNode = null;
+        private K lastKey = null;
+
+        public DictionaryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            if (nextNode != null) {
+                nextNode = nextNode.next;
+            }
+            while (nextNode == null) {
+                if (currentTable != null && bucketIndex < currentTable.length()) {
+                    nextNode = currentTable.get(bucketIndex++);
+                } else if (segmentIndex < segments.length) {
+                    currentTable = segmentAt(segmentIndex++).table;
+                    bucketIndex = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        protected abstract T extract(Node<K, V> node);
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = nextNode;
+            advance();
+            lastKey = node.key;
+            return extract(node);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentDictionary.this.remove(lastKey);
+            lastKey = null;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(Node<K, V> node) {
+                    return new DictionaryEntry(node.key, node.value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentDictionary.this.size();
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(Node<K, V> node) {
+                    return node.key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentDictionary.this.size();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(Node<K, V> node) {
+                    return node.value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentDictionary.this.size();
+        }
+    }
+
+    /**
+     * @return the least power of two which is not less than the specified number.
+     */
+    private static int powerOfTwoFor(int number, int maximum) {
+        if (number <= 1) {
+            return 1;
+        }
+        return Math.min(Integer.highestOneBit(number - 1) << 1, maximum);
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segmentAt((hash >>> segmentShift) & segmentMask);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Segment<K, V> segmentAt(int index) {
+        return (Segment<K, V>) segments[index];
+    }
+
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
+    }
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16),
+     * the default initial min load factor (0.25), the default initial max load factor (0.75)
+     * and the default concurrency level (16).
+     */
+    public ConcurrentDictionary() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_LOAD_FACTOR, DEFAULT_MAX_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Constructs an empty dictionary with the specified parameters.
+     * @param initCapacity -- the initial capacity, it is split between the segments.
+     * @param initMinLoadFactor -- the initial min load factor of a segment.
+     * @param initMaxLoadFactor -- the initial max load factor of a segment.
+     * @param concurrencyLevel -- the expected number of concurrently writing threads,
+     *                            it is rounded up to a power of two and used as the number of segments.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or
+     *                                     the min initial load factor is not in [0, 0.5] or
+     *                                     the max initial load factor in not in (0, 1] or
+     *                                     the concurrency level is not positive.
+     */
+    public ConcurrentDictionary(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor,
+                                int concurrencyLevel) throws IllegalArgumentException {
+        if (initCapacity < 0) {
+            throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
+        }
+        if (initMinLoadFactor < 0.0 || 0.5 < initMinLoadFactor) {
+            throw new IllegalArgumentException("the initial min load factor is not in [0, 0.5]");
+        }
+        if (initMaxLoadFactor <= 0.0 || 1 < initMaxLoadFactor) {
+            throw new IllegalArgumentException("the initial max load factor is not in (0, 1]");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("the concurrency level is not positive: " + concurrencyLevel);
+        }
+        int segmentCount = powerOfTwoFor(concurrencyLevel, MAXIMUM_SEGMENTS);
+        segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        segmentMask = segmentCount - 1;
+        int segmentCapacity = powerOfTwoFor((initCapacity + segmentCount - 1) / segmentCount, MAXIMUM_CAPACITY);
+        segments = new Object[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<K, V>(segmentCapacity, initMinLoadFactor, initMaxLoadFactor);
+        }
+    }
+
+    /**
+     * The result may be outdated if the dictionary is modified concurrently.
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        long result = 0;
+        for (int i = 0; i < segments.length; i++) {
+            Segment<K, V> segment = segmentAt(i);
+            result += segment.size;
+        }
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Takes no locks.
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).get(hash, key);
+    }
+
+    /**
+     * Puts the mapping in this dictionary.
+     * @param key -- the key of the mapping.
+     * @param value -- the value of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, false);
+    }
+
+    /**
+     * Atomically puts the mapping if this dictionary contains no mapping with the specified key.
+     * @return the current value by the specified key, or null if the mapping was put.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V putIfAbsent(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        return segmentFor(hash).put(hash, key, value, true);
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(hash, key, null);
+    }
+
+    /**
+     * Atomically removes the mapping if the specified key is mapped to the specified value.
+     * @return true if the mapping was removed.
+     */
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (key == null || value == null) {
+            return false;
+        }
+        int hash = hash(key);
+        return segmentFor(hash).remove(hash, key, value) != null;
+    }
+
+    /**
+     * Atomically replaces the value if the specified key is mapped to the old value.
+     * @return true if the value was replaced.
+     * @throws IllegalArgumentException if any of the arguments is null.
+     */
+    @Override
+    public boolean replace(@NotNull K key, @NotNull V oldValue, @NotNull V newValue) throws IllegalArgumentException {
+        checkMapping(key, newValue);
+        if (oldValue == null) {
+            throw new IllegalArgumentException("the old value is null");
+        }
+        int hash = hash(key);
+        return segmentFor(hash).replace(hash, key, oldValue, newValue) != null;
+    }
+
+    /**
+     * Atomically replaces the value if this dictionary contains a mapping with the specified key.
+     * @return the previous value, or null if there was no mapping.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V replace(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        return segmentFor(hash).replace(hash, key, null, value);
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary, one segment at a time.
+     */
+    @Override
+    public void clear() {
+        for (int i = 0; i < segments.length; i++) {
+            Segment<K, V> segment = segmentAt(i);
+            segment.clear();
+        }
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+}
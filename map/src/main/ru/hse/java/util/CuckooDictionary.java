@@ -0,0 +1,599 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The data struct for storage of mappings with a constant bound on the slots checked by a lookup.
+ * The key can not be null. The value can not be null.
+ * The slots form two tables of buckets of 4 slots, a key may be only in one bucket of each table
+ * or in a small stash, so a lookup checks at most {@link #LOOKUP_SLOTS} slots.
+ * An insertion into two full buckets moves a mapping to its bucket in the other table,
+ * which may move another one, and so on for a bounded number of moves. A mapping left without a slot
+ * goes to the stash, and when the stash is full the tables grow.
+ * Every slot stores the spread hash code of its key, so the moves and the resizes do not call hashCode.
+ * If the tables can not hold the mappings even at a low load, which happens only when many keys
+ * have the same spread hash code, the stash grows instead, and the lookups are not bounded any more.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class CuckooDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int BUCKET_SIZE = 4;
+    private static final int STASH_SIZE = 4;
+    private static final int MAX_MOVES = 128;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double MIN_LOAD_FACTOR = 0.2;
+    private static final double MAX_LOAD_FACTOR = 0.9;
+    private static final int SECOND_HASH_SEED = 0x9e3779b9;
+
+    /**
+     * The maximal number of slots checked by a lookup: two buckets and the stash,
+     * unless the stash has grown because of equal spread hash codes.
+     */
+    public static final int LOOKUP_SLOTS = 2 * BUCKET_SIZE + STASH_SIZE;
+
+    private final int minCapacity;
+    private final HashSpreader spreader;
+    // the buckets of the first table go before the buckets of the second one
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int bucketMask;
+    private Object[] stashKeys = new Object[STASH_SIZE];
+    private Object[] stashValues = new Object[STASH_SIZE];
+    private int[] stashHashes = new int[STASH_SIZE];
+    private int stashSize = 0;
+    private int size = 0;
+    private int modCount = 0;
+    // the state of the generator choosing the slots to move
+    private int random = 1;
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Iterates over the slots of the tables and then over the stash.
+     */
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int expectedModCount = modCount;
+        private int nextIndex = skipFree(0);
+        private int lastIndex = -1;
+
+        private int skipFree(int index) {
+            while (index < keys.length && keys[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+        protected abstract T extract(Object key, Object value);
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < keys.length + stashSize;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = lastIndex < keys.length ? skipFree(lastIndex + 1) : lastIndex + 1;
+            if (lastIndex < keys.length) {
+                return extract(keys[lastIndex], values[lastIndex]);
+            }
+            return extract(stashKeys[lastIndex - keys.length], stashValues[lastIndex - keys.length]);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            if (lastIndex < keys.length) {
+                clearSlot(lastIndex);
+            } else {
+                // the last mapping of the stash takes the place of the removed one
+                removeFromStash(lastIndex - keys.length);
+                nextIndex = lastIndex;
+            }
+            size--;
+            modCount++;
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected Entry<K, V> extract(Object key, Object value) {
+                    return new DictionaryEntry((K) key, (V) value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected K extract(Object key, Object value) {
+                    return (K) key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected V extract(Object key, Object value) {
+                    return (V) value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16).
+     */
+    public CuckooDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty dictionary with the default hash spreader.
+     * @param initCapacity -- the initial number of slots, it is rounded up to a power of two of at least 8.
+     * @throws IllegalArgumentException -- if the initial capacity is negative.
+     */
+    public CuckooDictionary(int initCapacity) throws IllegalArgumentException {
+        this(initCapacity, HashSpreader.MURMUR);
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param initCapacity -- the initial number of slots, it is rounded up to a power of two of at least 8.
+     * @param spreader -- the function mixing hash codes of the keys, the bucket of the first table
+     *                    is taken from the low bits, the bucket of the second one from the mixed hash.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or the spreader is null.
+     */
+    public CuckooDictionary(int initCapacity, @NotNull HashSpreader spreader) throws IllegalArgumentException {
+        if (initCapacity < 0) {
+            throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
+        }
+        if (spreader == null) {
+            throw new IllegalArgumentException("the spreader is null");
+        }
+        minCapacity = tableSizeFor(initCapacity);
+        this.spreader = spreader;
+        allocate(minCapacity);
+    }
+
+    /**
+     * @return the least power of two which is not less than the specified capacity and two buckets.
+     */
+    private static int tableSizeFor(int capacity) {
+        if (capacity <= 2 * BUCKET_SIZE) {
+            return 2 * BUCKET_SIZE;
+        }
+        return Math.min(Integer.highestOneBit(capacity - 1) << 1, MAXIMUM_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        bucketMask = capacity / BUCKET_SIZE / 2 - 1;
+    }
+
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
+    }
+
+    /**
+     * @return the index of the first slot of the bucket of the hash in the first table.
+     */
+    private int firstBucket(int hash) {
+        return (hash & bucketMask) * BUCKET_SIZE;
+    }
+
+    /**
+     * @return the index of the first slot of the bucket of the hash in the second table.
+     */
+    private int secondBucket(int hash) {
+        return ((HashSpreader.mix(hash ^ SECOND_HASH_SEED) & bucketMask) + bucketMask + 1) * BUCKET_SIZE;
+    }
+
+    /**
+     * @return the first slot of the bucket of the other table for the mapping in the specified slot.
+     */
+    private int otherBucket(int index) {
+        int hash = hashes[index];
+        int first = firstBucket(hash);
+        return index / BUCKET_SIZE * BUCKET_SIZE == first ? secondBucket(hash) : first;
+    }
+
+    private int findInBucket(int bucket, Object key, int hash) {
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (hashes[i] == hash && key.equals(keys[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the index of the slot of the key, the index of the stash slot plus the capacity,
+     *         or -1 if there is no such key.
+     */
+    private int find(Object key, int hash) {
+        int index = findInBucket(firstBucket(hash), key, hash);
+        if (index >= 0) {
+            return index;
+        }
+        index = findInBucket(secondBucket(hash), key, hash);
+        if (index >= 0) {
+            return index;
+        }
+        for (int i = 0; i < stashSize; i++) {
+            if (stashHashes[i] == hash && key.equals(stashKeys[i])) {
+                return keys.length + i;
+            }
+        }
+        return -1;
+    }
+
+    private int freeSlot(int bucket) {
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            if (keys[i] == null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setSlot(int index, int hash, Object key, Object value) {
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = hash;
+    }
+
+    private void clearSlot(int index) {
+        keys[index] = null;
+        values[index] = null;
+        hashes[index] = 0;
+    }
+
+    private void removeFromStash(int index) {
+        stashSize--;
+        stashKeys[index] = stashKeys[stashSize];
+        stashValues[index] = stashValues[stashSize];
+        stashHashes[index] = stashHashes[stashSize];
+        stashKeys[stashSize] = null;
+        stashValues[stashSize] = null;
+    }
+
+    /**
+     * Places the mapping whose key is absent into the tables, moving other mappings if both buckets are full.
+     * @return false if the stash was full and the tables have to grow, then the tables are not changed.
+     */
+    private boolean place(int hash, Object key, Object value) {
+        int index = freeSlot(firstBucket(hash));
+        if (index < 0) {
+            index = freeSlot(secondBucket(hash));
+        }
+        if (index >= 0) {
+            setSlot(index, hash, key, value);
+            return true;
+        }
+        if (stashSize == stashKeys.length) {
+            return false;
+        }
+        int bucket = firstBucket(hash);
+        for (int move = 0; move < MAX_MOVES; move++) {
+            random ^= random << 13;
+            random ^= random >>> 17;
+            random ^= random << 5;
+            int victim = bucket + (random & (BUCKET_SIZE - 1));
+            int victimHash = hashes[victim];
+            Object victimKey = keys[victim];
+            Object victimValue = values[victim];
+            bucket = otherBucket(victim);
+            setSlot(victim, hash, key, value);
+            hash = victimHash;
+            key = victimKey;
+            value = victimValue;
+            index = freeSlot(bucket);
+            if (index >= 0) {
+                setSlot(index, hash, key, value);
+                return true;
+            }
+        }
+        stashKeys[stashSize] = key;
+        stashValues[stashSize] = value;
+        stashHashes[stashSize] = hash;
+        stashSize++;
+        return true;
+    }
+
+    /**
+     * Moves the mappings of the stash to the tables if their buckets have free slots.
+     */
+    private void drainStash() {
+        for (int i = stashSize - 1; i >= 0; i--) {
+            int index = freeSlot(firstBucket(stashHashes[i]));
+            if (index < 0) {
+                index = freeSlot(secondBucket(stashHashes[i]));
+            }
+            if (index >= 0) {
+                setSlot(index, stashHashes[i], stashKeys[i], stashValues[i]);
+                removeFromStash(i);
+            }
+        }
+    }
+
+    /**
+     * @return true if the tables should grow to place the specified number of mappings,
+     *         or false if they are loaded so little that only the stash may help.
+     */
+    private boolean shouldGrow(int mappings, int capacity) {
+        return mappings > MAX_LOAD_FACTOR * capacity / 4 && capacity < MAXIMUM_CAPACITY;
+    }
+
+    private void growStash() {
+        stashKeys = Arrays.copyOf(stashKeys, 2 * stashKeys.length);
+        stashValues = Arrays.copyOf(stashValues, 2 * stashValues.length);
+        stashHashes = Arrays.copyOf(stashHashes, 2 * stashHashes.length);
+    }
+
+    /**
+     * Rebuilds the tables with the specified capacity, the capacity is doubled while the mappings do not fit.
+     */
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        Object[] oldStashKeys = stashKeys;
+        Object[] oldStashValues = stashValues;
+        int[] oldStashHashes = stashHashes;
+        int oldStashSize = stashSize;
+        int stashLength = STASH_SIZE;
+        boolean isPlaced;
+        do {
+            allocate(capacity);
+            stashKeys = new Object[stashLength];
+            stashValues = new Object[stashLength];
+            stashHashes = new int[stashLength];
+            stashSize = 0;
+            isPlaced = true;
+            for (int i = 0; i < oldKeys.length && isPlaced; i++) {
+                if (oldKeys[i] != null) {
+                    isPlaced = place(oldHashes[i], oldKeys[i], oldValues[i]);
+                }
+            }
+            for (int i = 0; i < oldStashSize && isPlaced; i++) {
+                isPlaced = place(oldStashHashes[i], oldStashKeys[i], oldStashValues[i]);
+            }
+            if (!isPlaced && shouldGrow(size, capacity)) {
+                capacity *= 2;
+            } else if (!isPlaced) {
+                stashLength *= 2;
+            }
+        } while (!isPlaced);
+        modCount++;
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks at most {@link #LOOKUP_SLOTS} slots.
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * Checks at most {@link #LOOKUP_SLOTS} slots.
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        return (V) (index < keys.length ? values[index] : stashValues[index - keys.length]);
+    }
+
+    /**
+     * Puts the mapping in this dictionary.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            Object[] holder = index < keys.length ? values : stashValues;
+            index = index < keys.length ? index : index - keys.length;
+            V result = (V) holder[index];
+            holder[index] = value;
+            return result;
+        }
+        if (size + 1 > MAX_LOAD_FACTOR * keys.length && keys.length < MAXIMUM_CAPACITY) {
+            resize(2 * keys.length);
+        }
+        while (!place(hash, key, value)) {
+            if (shouldGrow(size + 1, keys.length)) {
+                resize(2 * keys.length);
+            } else {
+                growStash();
+            }
+        }
+        size++;
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        V result;
+        if (index < keys.length) {
+            result = (V) values[index];
+            clearSlot(index);
+        } else {
+            result = (V) stashValues[index - keys.length];
+            removeFromStash(index - keys.length);
+        }
+        size--;
+        modCount++;
+        if (size <= MIN_LOAD_FACTOR * keys.length && keys.length > minCapacity) {
+            resize(keys.length / 2);
+        } else if (stashSize > 0) {
+            drainStash();
+        }
+        return result;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary.
+     */
+    @Override
+    public void clear() {
+        allocate(minCapacity);
+        stashKeys = new Object[STASH_SIZE];
+        stashValues = new Object[STASH_SIZE];
+        stashHashes = new int[STASH_SIZE];
+        stashSize = 0;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
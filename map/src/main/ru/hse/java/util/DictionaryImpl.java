@@ -2,212 +2,620 @@ package ru.hse.java.util;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * The data struct for storage of mappings.
  * The key can not be null. The value can not be null.
+ * Keys and values are kept in flat arrays, entry objects are created only by the entry set iterator.
+ * Collisions are resolved by Robin Hood linear probing, removal shifts the following slots back,
+ * so the table never contains tombstones.
+ * The capacity is always a power of two, the slot of a key is taken from the low bits
+ * of its hash code mixed by a {@link HashSpreader}. The mixed hash code is stored next to the key,
+ * a probe calls equals only for the keys with the same stored hash, and a resize does not call hashCode.
+ * The table can be resized at once or incrementally, see {@link ResizeMode}.
+ * The statistics of the table and of its resizes are collected only after {@link #enableStatistics()}.
  * @param <K> -- the type of keys.
  * @param <V> -- the type of values.
  */
 public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
     private static final int DEFAULT_CAPACITY = 1 << 4;
-    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final int MAXIMUM_CAPACITY = RobinHoodTable.MAXIMUM_CAPACITY;
     private static final double DEFAULT_MIN_LOAD_FACTOR = 0.25;
     private static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
 
-    private int size;
-    private int cntTaken;
+    // the number of slots of the old table processed by an operation during an incremental resize
+    static final int MIGRATION_STEP = 16;
+
+    private static final int SNAPSHOT_MAGIC = 0x48534433;
+    // the previous version of the snapshots has no shrink policy, they are read with HALVE
+    private static final int SNAPSHOT_MAGIC_WITHOUT_SHRINK_POLICY = 0x48534432;
+    // the kinds of the shrink policies in a snapshot, a policy of the last kind is not recorded
+    private static final int HALVE_POLICY = 0;
+    private static final int NEVER_POLICY = 1;
+    private static final int LOAD_FACTOR_POLICY = 2;
+    private static final int CUSTOM_POLICY = 3;
+    // the number of the first keys of a snapshot whose home slots are checked by hashing
+    private static final int VERIFIED_SNAPSHOT_KEYS = 16;
+
+    /**
+     * The way the dictionary moves its mappings to a new table when the capacity changes.
+     */
+    public enum ResizeMode {
+        /**
+         * All mappings are moved by the operation which triggered the resize.
+         */
+        AT_ONCE,
+        /**
+         * The old table is kept next to the new one, and every put or remove which changes the size
+         * moves a bounded number of slots, so no single operation pays for the whole resize.
+         * Lookups check both tables while the migration is in progress.
+         */
+        INCREMENTAL
+    }
+
     private final int minCapacity;
     private final double minLoadFactor;
     private final double maxLoadFactor;
-    private ArrayList<Entry<K, V>> array;
+    private final HashSpreader spreader;
+    private final ResizeMode resizeMode;
+    private final ShrinkPolicy shrinkPolicy;
+    private Table table;
+    // the table whose mappings are being moved to the current one, null if there is no migration
+    private Table oldTable;
+    // the slots of the old table before this index are already free
+    private int migrationIndex;
+    // the number of structural modifications, used to detect them inside the remapping functions
+    private int modCount = 0;
+    // the counters of the resizes, null if the statistics are disabled
+    private RehashCounters rehashCounters = null;
 
-    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+    private static class RehashCounters {
+        private long count = 0;
+        private long nanos = 0;
+    }
+
+    /**
+     * Open addressing table of the dictionary, the probing is done by {@link RobinHoodTable}.
+     */
+    private class Table extends RobinHoodTable {
+        private final Object[] keys;
+        private final Object[] values;
+
+        public Table(int capacity) {
+            super(capacity);
+            keys = new Object[capacity];
+            values = new Object[capacity];
+        }
+
+        @SuppressWarnings("unchecked")
+        public K keyAt(int index) {
+            return (K) keys[index];
+        }
+
+        @SuppressWarnings("unchecked")
+        public V valueAt(int index) {
+            return (V) values[index];
+        }
+
+        @Override
+        protected boolean keyEquals(int index, long primitiveKey, Object key) {
+            return keys[index].equals(key);
+        }
 
-        private class DictionaryEntryIterator implements Iterator<Entry<K, V>> {
-            private int curIndex = 0;
+        @Override
+        protected void moveSlot(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+        }
 
-            @Override
-            public boolean hasNext() {
-                for (int i = curIndex; i < array.size(); i++) {
-                    if (isTaken(i) && !isDeleted(i)) {
-                        return true;
-                    }
+        @Override
+        protected void clearSlot(int index) {
+            keys[index] = null;
+            values[index] = null;
+        }
+
+        /**
+         * @param hash -- the spread hash code of the key.
+         * @return the position of the slot with the specified key,
+         *         or -(stop + 1) where stop is the slot where the key should be inserted.
+         */
+        public int findPosition(Object key, int hash) {
+            return findPosition(hash, 0, key);
+        }
+
+        /**
+         * Inserts the mapping whose key is absent from the table
+         * at the position returned by {@link #findPosition(Object, int)}.
+         */
+        public void insert(int position, int hash, Object key, Object value) {
+            put(-(position + 1), hash, key, value);
+        }
+
+        /**
+         * Inserts the mapping whose key is absent from the table.
+         * @param hash -- the spread hash code of the key, stored by the previous table during a resize.
+         */
+        public void insert(int hash, Object key, Object value) {
+            put(stopFor(hash), hash, key, value);
+        }
+
+        private void put(int stop, int hash, Object key, Object value) {
+            modCount++;
+            insertAt(stop, hash);
+            keys[stop] = key;
+            values[stop] = value;
+        }
+
+        public void delete(int index) {
+            modCount++;
+            deleteAt(index);
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            int hash = hash(getKey());
+            Table holder = table;
+            int position = holder.findPosition(getKey(), hash);
+            if (position < 0 && oldTable != null) {
+                holder = oldTable;
+                position = holder.findPosition(getKey(), hash);
+            }
+            if (position >= 0) {
+                holder.values[position] = value;
+            }
+            return super.setValue(value);
+        }
+    }
+
+    /*
+     * Iterates over the old table first (if the migration is in progress) and then over the current one.
+     * Only put and remove move mappings between the tables, lookups are safe during the iteration.
+     */
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private Table current;
+        /*
+         * Removal may shift a visited mapping from the beginning of the table to its end,
+         * so the iterator leaves the table after it has returned as many mappings as the table had
+         */
+        private int remaining;
+        private int nextIndex;
+        private Table lastTable;
+        private int lastIndex = -1;
+
+        public DictionaryIterator() {
+            start(oldTable != null ? oldTable : table);
+        }
+
+        private void start(Table table) {
+            current = table;
+            remaining = table.size;
+            nextIndex = table.skipFree(0);
+        }
+
+        protected abstract T extract(Table table, int index);
+
+        @Override
+        public boolean hasNext() {
+            if (remaining == 0 && current != table) {
+                start(table);
+            }
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            lastTable = current;
+            lastIndex = nextIndex;
+            nextIndex = current.skipFree(nextIndex + 1);
+            return extract(lastTable, lastIndex);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            lastTable.delete(lastIndex);
+            if (lastTable == current && current.probeLengths[lastIndex] != 0) {
+                nextIndex = lastIndex;
+            }
+            lastIndex = -1;
+        }
+    }
+
+    /*
+     * Splits the slots of the tables into ranges, the slots of the old table (if the migration is in progress)
+     * go before the slots of the current table
+     */
+    private abstract class DictionarySpliterator<T> implements Spliterator<T> {
+        private final Table first;
+        private final Table second;
+        private int index;
+        private final int fence;
+        private int estimate;
+        // the estimate is exact until the spliterator is split
+        private boolean isWhole;
+
+        public DictionarySpliterator() {
+            first = oldTable;
+            second = table;
+            index = 0;
+            fence = (first == null ? 0 : first.capacity()) + second.capacity();
+            estimate = size();
+            isWhole = true;
+        }
+
+        protected DictionarySpliterator(DictionarySpliterator<T> parent, int index, int fence, int estimate) {
+            first = parent.first;
+            second = parent.second;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            isWhole = false;
+        }
+
+        protected abstract T extract(Table table, int index);
+
+        protected abstract DictionarySpliterator<T> create(int index, int fence, int estimate);
+
+        /**
+         * @return true if the slot with the specified global index is taken, the result is passed to the action.
+         */
+        private boolean tryAccept(int slot, Consumer<? super T> action) {
+            Table holder = second;
+            if (first != null) {
+                if (slot < first.capacity()) {
+                    holder = first;
+                } else {
+                    slot -= first.capacity();
                 }
+            }
+            if (holder.probeLengths[slot] == 0) {
                 return false;
             }
+            action.accept(extract(holder, slot));
+            return true;
+        }
 
-            @Override
-            public Entry<K, V> next() throws NoSuchElementException {
-                for (; curIndex < array.size(); curIndex++) {
-                    if (isTaken(curIndex) && !isDeleted(curIndex)) {
-                        return array.get(curIndex++);
-                    }
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (index < fence) {
+                if (tryAccept(index++, action)) {
+                    return true;
                 }
-                throw new NoSuchElementException();
             }
+            return false;
+        }
 
-            @Override
-            public void remove() throws IllegalStateException {
-                if (curIndex - 1 < 0 || isDeleted(curIndex - 1)) {
-                    throw new IllegalStateException();
-                }
-                size--;
-                array.get(curIndex - 1).setValue(null);
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; index < fence; index++) {
+                tryAccept(index, action);
             }
         }
 
         @Override
-        public @NotNull Iterator<Entry<K, V>> iterator() {
-            return new DictionaryEntryIterator();
+        public Spliterator<T> trySplit() {
+            int middle = (index + fence) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            estimate >>>= 1;
+            isWhole = false;
+            Spliterator<T> prefix = create(index, middle, estimate);
+            index = middle;
+            return prefix;
         }
 
         @Override
-        public int size() {
-            return size;
+        public long estimateSize() {
+            return estimate;
         }
 
+        @Override
+        public int characteristics() {
+            return (isWhole ? Spliterator.SIZED : 0) | Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
     }
 
-    private class DictionaryKeySet extends AbstractSet<K> {
-        private final Set<Entry<K, V>> delegate;
+    private class EntrySpliterator extends DictionarySpliterator<Entry<K, V>> {
 
-        private class DictionaryKeyIterator implements Iterator<K> {
-            private final Iterator<Entry<K, V>> delegateIterator;
+        public EntrySpliterator() {
+            super();
+        }
 
-            public DictionaryKeyIterator(Iterator<Entry<K, V>> delegateIterator) {
-                this.delegateIterator = delegateIterator;
-            }
+        private EntrySpliterator(EntrySpliterator parent, int index, int fence, int estimate) {
+            super(parent, index, fence, estimate);
+        }
 
-            @Override
-            public boolean hasNext() {
-                return delegateIterator.hasNext();
-            }
+        @Override
+        protected Entry<K, V> extract(Table table, int index) {
+            return new DictionaryEntry(table.keyAt(index), table.valueAt(index));
+        }
 
-            @Override
-            public K next() {
-                return delegateIterator.next().getKey();
-            }
+        @Override
+        protected DictionarySpliterator<Entry<K, V>> create(int index, int fence, int estimate) {
+            return new EntrySpliterator(this, index, fence, estimate);
+        }
+    }
 
-            @Override
-            public void remove() {
-                delegateIterator.remove();
-            }
+    private class KeySpliterator extends DictionarySpliterator<K> {
+
+        public KeySpliterator() {
+            super();
         }
 
-        public DictionaryKeySet(Set<Entry<K, V>> delegate) {
-            this.delegate = delegate;
+        private KeySpliterator(KeySpliterator parent, int index, int fence, int estimate) {
+            super(parent, index, fence, estimate);
         }
 
         @Override
-        public @NotNull Iterator<K> iterator() {
-            return new DictionaryKeyIterator(delegate.iterator());
+        protected K extract(Table table, int index) {
+            return table.keyAt(index);
         }
 
         @Override
-        public int size() {
-            return delegate.size();
+        protected DictionarySpliterator<K> create(int index, int fence, int estimate) {
+            return new KeySpliterator(this, index, fence, estimate);
         }
     }
 
-    private class DictionaryValueCollection extends AbstractCollection<V> {
-        private final Set<Entry<K, V>> delegate;
+    private class ValueSpliterator extends DictionarySpliterator<V> {
 
-        private class DictionaryValueIterator implements Iterator<V> {
-            private final Iterator<Entry<K, V>> delegateIterator;
+        public ValueSpliterator() {
+            super();
+        }
 
-            public DictionaryValueIterator(Iterator<Entry<K, V>> delegateIterator) {
-                this.delegateIterator = delegateIterator;
-            }
+        private ValueSpliterator(ValueSpliterator parent, int index, int fence, int estimate) {
+            super(parent, index, fence, estimate);
+        }
 
-            @Override
-            public boolean hasNext() {
-                return delegateIterator.hasNext();
-            }
+        @Override
+        protected V extract(Table table, int index) {
+            return table.valueAt(index);
+        }
 
-            @Override
-            public V next() {
-                return delegateIterator.next().getValue();
-            }
+        @Override
+        protected DictionarySpliterator<V> create(int index, int fence, int estimate) {
+            return new ValueSpliterator(this, index, fence, estimate);
+        }
 
-            @Override
-            public void remove() {
-                delegateIterator.remove();
-            }
+        @Override
+        public int characteristics() {
+            return super.characteristics() & ~Spliterator.DISTINCT;
         }
+    }
 
-        public DictionaryValueCollection(Set<Entry<K, V>> delegate) {
-            this.delegate = delegate;
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(Table table, int index) {
+                    return new DictionaryEntry(table.keyAt(index), table.valueAt(index));
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<Entry<K, V>> spliterator() {
+            return new EntrySpliterator();
+        }
+
+        @Override
+        public int size() {
+            return DictionaryImpl.this.size();
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(Table table, int index) {
+                    return table.keyAt(index);
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<K> spliterator() {
+            return new KeySpliterator();
         }
 
+        @Override
+        public int size() {
+            return DictionaryImpl.this.size();
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
         @Override
         public @NotNull Iterator<V> iterator() {
-            return new DictionaryValueIterator(delegate.iterator());
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(Table table, int index) {
+                    return table.valueAt(index);
+                }
+            };
+        }
+
+        @Override
+        public Spliterator<V> spliterator() {
+            return new ValueSpliterator();
         }
 
         @Override
         public int size() {
-            return delegate.size();
+            return DictionaryImpl.this.size();
         }
     }
 
-    private int getIndex(Object key) {
-        return Math.abs(key.hashCode()) % array.size();
+    /**
+     * Called after every insertion: advances the migration and doubles the table if its load reaches
+     * the max load factor.
+     */
+    private void rehashAfterInsertion() {
+        if (oldTable != null) {
+            migrate(MIGRATION_STEP);
+        }
+        if (RobinHoodTable.isOverloaded(size(), table.capacity(), maxLoadFactor)) {
+            resize(2 * table.capacity());
+        }
     }
 
-    private void build(int capacity) {
-        size = 0;
-        cntTaken = 0;
-        array = new ArrayList<>(capacity);
-        for (int i = 0; i < capacity; i++) {
-            array.add(null);
+    /**
+     * Called after every removal: advances the migration and shrinks the table as the shrink policy decides.
+     * The table never shrinks after an insertion, so the capacity reserved by {@link #ensureCapacity(int)}
+     * survives until the mappings are removed.
+     */
+    private void rehashAfterRemoval() {
+        if (oldTable != null) {
+            migrate(MIGRATION_STEP);
+        }
+        int capacity = table.capacity();
+        int newCapacity = RobinHoodTable.shrunkCapacity(shrinkPolicy, size(), capacity, minCapacity,
+                minLoadFactor, maxLoadFactor);
+        if (newCapacity < capacity) {
+            resize(newCapacity);
         }
     }
 
-    private void rehash() {
-        int newCapacity;
-        if (size <= minLoadFactor * array.size() && array.size() != minCapacity) {
-            newCapacity = array.size() / 2;
-        } else if (maxLoadFactor * array.size() <= cntTaken) {
-            newCapacity = 2 * array.size();
+    /**
+     * Replaces the table with a table of the specified capacity, the mappings are moved
+     * at once or incrementally depending on the resize mode.
+     */
+    private void resize(int newCapacity) {
+        if (oldTable != null) {
+            migrate(Integer.MAX_VALUE);
+        }
+        long start = rehashCounters == null ? 0 : System.nanoTime();
+        Table previous = table;
+        table = new Table(newCapacity);
+        if (resizeMode == ResizeMode.INCREMENTAL) {
+            oldTable = previous;
+            migrationIndex = 0;
         } else {
-            return;
+            for (int i = 0; i < previous.capacity(); i++) {
+                if (previous.probeLengths[i] != 0) {
+                    table.insert(previous.hashes[i], previous.keys[i], previous.values[i]);
+                }
+            }
         }
-        ArrayList<Entry<K, V>> buffer = new ArrayList<>(array);
-        build(newCapacity);
-        for (var pair : buffer) {
-            if (pair != null && pair.getValue() != null) {
-                forcePut(pair.getKey(), pair.getValue());
+        if (rehashCounters != null) {
+            rehashCounters.count++;
+            rehashCounters.nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return the least capacity which holds the specified number of mappings below the max load factor.
+     */
+    private int capacityFor(int size) {
+        return RobinHoodTable.capacityFor(size, maxLoadFactor);
+    }
+
+    /**
+     * Moves mappings from the old table to the current one.
+     * @param steps -- the number of slots of the old table to process.
+     */
+    private void migrate(int steps) {
+        long start = rehashCounters == null ? 0 : System.nanoTime();
+        for (; steps > 0 && oldTable.size > 0; steps--) {
+            if (oldTable.probeLengths[migrationIndex] == 0) {
+                migrationIndex++;
+            } else {
+                table.insert(oldTable.hashes[migrationIndex], oldTable.keys[migrationIndex],
+                        oldTable.values[migrationIndex]);
+                oldTable.delete(migrationIndex);
             }
         }
+        if (oldTable.size == 0) {
+            oldTable = null;
+        }
+        if (rehashCounters != null) {
+            rehashCounters.nanos += System.nanoTime() - start;
+        }
     }
 
-    private void forcePut(K key, V value) {
-        size++;
-        cntTaken++;
-        int position = findPosition(key);
-        array.set(position, new SimpleEntry<>(key, value));
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
     }
 
-    private boolean isTaken(int index) {
-        return array.get(index) != null;
+    /**
+     * @return the position of the specified key in the old table,
+     *         or a negative number if there is no migration or the old table has no such key.
+     */
+    private int findInOldTable(Object key, int hash) {
+        return oldTable == null ? -1 : oldTable.findPosition(key, hash);
     }
 
-    private boolean equalByKeys(Object key, int index) {
-        return array.get(index).getKey().equals(key);
+    /**
+     * Stores the new value at the found position, or deletes the mapping if the new value is null.
+     * @return the new value.
+     */
+    private V replaceOrDelete(Table holder, int position, V value) {
+        if (value == null) {
+            holder.delete(position);
+            rehashAfterRemoval();
+        } else {
+            holder.values[position] = value;
+        }
+        return value;
     }
 
-    private boolean isDeleted(int index) {
-        return array.get(index).getValue() == null;
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
     }
 
-    private int findPosition(Object key) {
-        int index = getIndex(key);
-        while (isTaken(index) && (!equalByKeys(key, index) || isDeleted(index))) {
-            index = (index + 1) % array.size();
+    private static void checkKey(Object key) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
         }
-        return index;
     }
 
     /**
@@ -219,8 +627,8 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
     }
 
     /**
-     * Constructs an empty dictionary with the specified parameters.
-     * @param initCapacity -- the initial capacity.
+     * Constructs an empty dictionary with the specified parameters and the default hash spreader.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two.
      * @param initMinLoadFactor -- the initial min load factor.
      * @param initMaxLoadFactor -- the initial max load factor.
      * @throws IllegalArgumentException -- if the initial capacity is negative or
@@ -228,6 +636,62 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
      *                                     the max initial load factor in not in (0, 1].
      */
     public DictionaryImpl(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor) throws IllegalArgumentException {
+        this(initCapacity, initMinLoadFactor, initMaxLoadFactor, HashSpreader.MURMUR);
+    }
+
+    /**
+     * Constructs an empty dictionary with the specified parameters.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two.
+     * @param initMinLoadFactor -- the initial min load factor.
+     * @param initMaxLoadFactor -- the initial max load factor.
+     * @param spreader -- the function mixing hash codes of the keys,
+     *                    use {@link HashSpreader#seeded(int)} for keys coming from untrusted clients.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or
+     *                                     the min initial load factor is not in [0, 0.5] or
+     *                                     the max initial load factor in not in (0, 1] or
+     *                                     the spreader is null.
+     */
+    public DictionaryImpl(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor,
+                          @NotNull HashSpreader spreader) throws IllegalArgumentException {
+        this(initCapacity, initMinLoadFactor, initMaxLoadFactor, spreader, ResizeMode.AT_ONCE);
+    }
+
+    /**
+     * Constructs an empty dictionary with the specified parameters.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two.
+     * @param initMinLoadFactor -- the initial min load factor.
+     * @param initMaxLoadFactor -- the initial max load factor.
+     * @param spreader -- the function mixing hash codes of the keys,
+     *                    use {@link HashSpreader#seeded(int)} for keys coming from untrusted clients.
+     * @param resizeMode -- whether the mappings are moved to a resized table at once or incrementally.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or
+     *                                     the min initial load factor is not in [0, 0.5] or
+     *                                     the max initial load factor in not in (0, 1] or
+     *                                     the spreader or the resize mode is null.
+     */
+    public DictionaryImpl(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor,
+                          @NotNull HashSpreader spreader, @NotNull ResizeMode resizeMode) throws IllegalArgumentException {
+        this(initCapacity, initMinLoadFactor, initMaxLoadFactor, spreader, resizeMode, ShrinkPolicy.HALVE);
+    }
+
+    /**
+     * Constructs an empty dictionary with the specified parameters.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two.
+     * @param initMinLoadFactor -- the initial min load factor.
+     * @param initMaxLoadFactor -- the initial max load factor.
+     * @param spreader -- the function mixing hash codes of the keys,
+     *                    use {@link HashSpreader#seeded(int)} for keys coming from untrusted clients.
+     * @param resizeMode -- whether the mappings are moved to a resized table at once or incrementally.
+     * @param shrinkPolicy -- the policy deciding how the table shrinks after removals,
+     *                        use {@link ShrinkPolicy#toLoadFactor(double)} for a size moving back and forth.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or
+     *                                     the min initial load factor is not in [0, 0.5] or
+     *                                     the max initial load factor in not in (0, 1] or
+     *                                     the spreader, the resize mode or the shrink policy is null.
+     */
+    public DictionaryImpl(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor,
+                          @NotNull HashSpreader spreader, @NotNull ResizeMode resizeMode,
+                          @NotNull ShrinkPolicy shrinkPolicy) throws IllegalArgumentException {
         if (initCapacity < 0) {
             throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
         }
@@ -237,10 +701,22 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
         if (initMaxLoadFactor <= 0.0 || 1 < initMaxLoadFactor) {
             throw new IllegalArgumentException("the initial max load factor is not in (0, 1]");
         }
-        minCapacity = Math.min(initCapacity, MAXIMUM_CAPACITY);
+        if (spreader == null) {
+            throw new IllegalArgumentException("the spreader is null");
+        }
+        if (resizeMode == null) {
+            throw new IllegalArgumentException("the resize mode is null");
+        }
+        if (shrinkPolicy == null) {
+            throw new IllegalArgumentException("the shrink policy is null");
+        }
+        minCapacity = RobinHoodTable.tableSizeFor(initCapacity);
         minLoadFactor = initMinLoadFactor;
         maxLoadFactor = initMaxLoadFactor;
-        build(initCapacity);
+        this.spreader = spreader;
+        this.resizeMode = resizeMode;
+        this.shrinkPolicy = shrinkPolicy;
+        table = new Table(minCapacity);
     }
 
     /**
@@ -248,7 +724,7 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
      */
     @Override
     public int size() {
-        return size;
+        return oldTable == null ? table.size : table.size + oldTable.size;
     }
 
     /**
@@ -260,8 +736,8 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
         if (key == null) {
             return false;
         }
-        int position = findPosition(key);
-        return array.get(position) != null;
+        int hash = hash(key);
+        return table.findPosition(key, hash) >= 0 || findInOldTable(key, hash) >= 0;
     }
 
     /**
@@ -274,11 +750,16 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
         if (key == null) {
             return null;
         }
-        int position = findPosition(key);
-        if (array.get(position) == null) {
-            return null;
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            return table.valueAt(position);
+        }
+        position = findInOldTable(key, hash);
+        if (position >= 0) {
+            return oldTable.valueAt(position);
         }
-        return array.get(position).getValue();
+        return null;
     }
 
     /**
@@ -290,21 +771,23 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
      */
     @Override
     public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
-        if (key == null) {
-            throw new IllegalArgumentException("the key is null");
-        }
-        if (value == null) {
-            throw new IllegalArgumentException("the value is null");
+        checkMapping(key, value);
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            V result = table.valueAt(position);
+            table.values[position] = value;
+            return result;
         }
-        int position = findPosition(key);
-        if (array.get(position) == null) {
-            size++;
-            cntTaken++;
-            array.set(position, new SimpleEntry<>(key, value));
-            rehash();
-            return null;
+        int oldPosition = findInOldTable(key, hash);
+        if (oldPosition >= 0) {
+            V result = oldTable.valueAt(oldPosition);
+            oldTable.values[oldPosition] = value;
+            return result;
         }
-        return array.get(position).setValue(value);
+        table.insert(position, hash, key, value);
+        rehashAfterInsertion();
+        return null;
     }
 
     /**
@@ -317,23 +800,501 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
         if (key == null) {
             return null;
         }
-        int position = findPosition(key);
-        if (array.get(position) != null) {
-            size--;
-            V result = array.get(position).setValue(null);
-            rehash();
-            return result;
+        int hash = hash(key);
+        Table holder = table;
+        int position = holder.findPosition(key, hash);
+        if (position < 0) {
+            holder = oldTable;
+            position = findInOldTable(key, hash);
         }
+        if (position < 0) {
+            return null;
+        }
+        V result = holder.valueAt(position);
+        holder.delete(position);
+        rehashAfterRemoval();
+        return result;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @param defaultValue -- the value returned if there is no mapping with the specified key.
+     * @return the value by the specified key, or the default value.
+     */
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        V result = get(key);
+        return result == null ? defaultValue : result;
+    }
+
+    /**
+     * Puts the mapping if this dictionary contains no mapping with the specified key.
+     * The table is probed once.
+     * @return the current value by the specified key, or null if the mapping was put.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V putIfAbsent(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            return table.valueAt(position);
+        }
+        int oldPosition = findInOldTable(key, hash);
+        if (oldPosition >= 0) {
+            return oldTable.valueAt(oldPosition);
+        }
+        table.insert(position, hash, key, value);
+        rehashAfterInsertion();
         return null;
     }
 
+    /**
+     * Puts the mapping with the computed value if this dictionary contains no mapping with the specified key.
+     * The table is probed once, the new mapping is inserted where the probe stopped.
+     * @return the current or the computed value, or null if the function returned null.
+     * @throws IllegalArgumentException if the specified key is null.
+     * @throws ConcurrentModificationException if the function modified this dictionary.
+     */
+    @Override
+    public V computeIfAbsent(@NotNull K key, @NotNull Function<? super K, ? extends V> mappingFunction)
+            throws IllegalArgumentException, ConcurrentModificationException {
+        checkKey(key);
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            return table.valueAt(position);
+        }
+        int oldPosition = findInOldTable(key, hash);
+        if (oldPosition >= 0) {
+            return oldTable.valueAt(oldPosition);
+        }
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        checkModCount(expectedModCount);
+        if (value != null) {
+            table.insert(position, hash, key, value);
+            rehashAfterInsertion();
+        }
+        return value;
+    }
+
+    /**
+     * Replaces the value by the specified key with the computed one, if the mapping exists.
+     * The mapping is removed if the function returns null. The table is probed once.
+     * @return the new value, or null if there was no mapping or it was removed.
+     * @throws IllegalArgumentException if the specified key is null.
+     * @throws ConcurrentModificationException if the function modified this dictionary.
+     */
+    @Override
+    public V computeIfPresent(@NotNull K key, @NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+            throws IllegalArgumentException, ConcurrentModificationException {
+        checkKey(key);
+        int hash = hash(key);
+        Table holder = table;
+        int position = holder.findPosition(key, hash);
+        if (position < 0) {
+            holder = oldTable;
+            position = findInOldTable(key, hash);
+            if (position < 0) {
+                return null;
+            }
+        }
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, holder.valueAt(position));
+        checkModCount(expectedModCount);
+        return replaceOrDelete(holder, position, value);
+    }
+
+    /**
+     * Computes the new value by the specified key from the current one (null if there is no mapping).
+     * The mapping is removed if the function returns null. The table is probed once.
+     * @return the new value, or null if there is no mapping after the call.
+     * @throws IllegalArgumentException if the specified key is null.
+     * @throws ConcurrentModificationException if the function modified this dictionary.
+     */
+    @Override
+    public V compute(@NotNull K key, @NotNull BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+            throws IllegalArgumentException, ConcurrentModificationException {
+        checkKey(key);
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            int expectedModCount = modCount;
+            V value = remappingFunction.apply(key, table.valueAt(position));
+            checkModCount(expectedModCount);
+            return replaceOrDelete(table, position, value);
+        }
+        int oldPosition = findInOldTable(key, hash);
+        if (oldPosition >= 0) {
+            int expectedModCount = modCount;
+            V value = remappingFunction.apply(key, oldTable.valueAt(oldPosition));
+            checkModCount(expectedModCount);
+            return replaceOrDelete(oldTable, oldPosition, value);
+        }
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, null);
+        checkModCount(expectedModCount);
+        if (value != null) {
+            table.insert(position, hash, key, value);
+            rehashAfterInsertion();
+        }
+        return value;
+    }
+
+    /**
+     * Puts the specified value if there is no mapping with the specified key,
+     * otherwise combines the current value with the specified one.
+     * The mapping is removed if the function returns null. The table is probed once.
+     * @return the new value, or null if the mapping was removed.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     * @throws ConcurrentModificationException if the function modified this dictionary.
+     */
+    @Override
+    public V merge(@NotNull K key, @NotNull V value,
+                   @NotNull BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+            throws IllegalArgumentException, ConcurrentModificationException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        int position = table.findPosition(key, hash);
+        if (position >= 0) {
+            int expectedModCount = modCount;
+            V merged = remappingFunction.apply(table.valueAt(position), value);
+            checkModCount(expectedModCount);
+            return replaceOrDelete(table, position, merged);
+        }
+        int oldPosition = findInOldTable(key, hash);
+        if (oldPosition >= 0) {
+            int expectedModCount = modCount;
+            V merged = remappingFunction.apply(oldTable.valueAt(oldPosition), value);
+            checkModCount(expectedModCount);
+            return replaceOrDelete(oldTable, oldPosition, merged);
+        }
+        table.insert(position, hash, key, value);
+        rehashAfterInsertion();
+        return value;
+    }
+
+    /**
+     * Copies all of the mappings from the specified map to this dictionary, the table is resized
+     * for the current mappings and the mappings of the map beforehand instead of growing step by step.
+     * @param m -- the mappings to put in this dictionary.
+     * @throws IllegalArgumentException if the map contains a null key or a null value.
+     */
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) throws IllegalArgumentException {
+        ensureCapacity((int) Math.min(MAXIMUM_CAPACITY, (long) size() + m.size()));
+        for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Grows the table, if necessary, to hold the specified number of mappings without resizing.
+     * The reserved capacity is kept until the mappings are removed and the shrink policy shrinks the table.
+     * @param size -- the expected number of mappings.
+     */
+    public void ensureCapacity(int size) {
+        int newCapacity = capacityFor(size);
+        if (newCapacity > table.capacity()) {
+            resize(newCapacity);
+        }
+    }
+
+    /**
+     * Shrinks the table to the least capacity which holds the mappings below the max load factor,
+     * but not below the initial capacity. The mappings are moved at once regardless of the resize mode.
+     */
+    public void trimToSize() {
+        int newCapacity = Math.max(minCapacity, capacityFor(size()));
+        if (newCapacity < table.capacity()) {
+            resize(newCapacity);
+        }
+        if (oldTable != null) {
+            migrate(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return the number of slots of the table.
+     */
+    public int capacity() {
+        return table.capacity();
+    }
+
+    /**
+     * @return the number of mappings which are still in the old table, 0 if no incremental resize is in progress.
+     */
+    int pendingMigration() {
+        return oldTable == null ? 0 : oldTable.size;
+    }
+
+    /**
+     * Computes the longest probe sequence among the keys of this dictionary.
+     * Expected complexity: O(capacity)
+     * @return the maximal number of slots probed by a successful lookup, 0 for an empty dictionary.
+     */
+    public int maxProbeLength() {
+        if (oldTable == null) {
+            return table.maxProbeLength();
+        }
+        return Math.max(table.maxProbeLength(), oldTable.maxProbeLength());
+    }
+
+    /**
+     * Starts counting the resizes and the time spent in them, the counters start from zero.
+     * While the statistics are disabled, a resize does not read the clock.
+     */
+    public void enableStatistics() {
+        rehashCounters = new RehashCounters();
+    }
+
+    /**
+     * Stops counting the resizes and drops the counters.
+     */
+    public void disableStatistics() {
+        rehashCounters = null;
+    }
+
+    /**
+     * Collects the probe lengths of the mappings and copies the counters of the resizes.
+     * Expected complexity: O(capacity)
+     * @return the snapshot of the statistics, or null if the statistics are disabled.
+     */
+    public DictionaryStatistics statistics() {
+        if (rehashCounters == null) {
+            return null;
+        }
+        int[] counts = new int[maxProbeLength()];
+        table.countProbeLengths(counts);
+        int capacity = table.capacity();
+        if (oldTable != null) {
+            oldTable.countProbeLengths(counts);
+            capacity += oldTable.capacity();
+        }
+        // the removal shifts the following mappings back, so there are no tombstones
+        return new DictionaryStatistics(capacity, size(), 0, counts, rehashCounters.count, rehashCounters.nanos);
+    }
+
+    /**
+     * Builds the dictionary with the default parameters from the entries in parallel on the common fork/join pool,
+     * see {@link #parallelCopyOf(Spliterator, ForkJoinPool)}.
+     * @param entries -- the mappings, the later mapping of a repeated key wins.
+     * @throws IllegalArgumentException -- if the collection is null or contains a null entry, key or value.
+     */
+    public static <K, V> DictionaryImpl<K, V> parallelCopyOf(
+            @NotNull Collection<? extends Entry<? extends K, ? extends V>> entries) throws IllegalArgumentException {
+        if (entries == null) {
+            throw new IllegalArgumentException("the entries are null");
+        }
+        return parallelCopyOf(entries.spliterator(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the dictionary with the default parameters from the entries in parallel on the common fork/join pool,
+     * see {@link #parallelCopyOf(Spliterator, ForkJoinPool)}.
+     * @param entries -- the mappings, the later mapping of a repeated key wins.
+     * @throws IllegalArgumentException -- if the array is null or contains a null entry, key or value.
+     */
+    public static <K, V> DictionaryImpl<K, V> parallelCopyOf(@NotNull Entry<? extends K, ? extends V>[] entries)
+            throws IllegalArgumentException {
+        if (entries == null) {
+            throw new IllegalArgumentException("the entries are null");
+        }
+        return parallelCopyOf(Arrays.spliterator(entries), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the dictionary with the default parameters from the entries in parallel.
+     * The splits of the entries are collected and hashed by separate tasks, then the mappings are sorted
+     * by the ranges of their home slots and every range of the table presized for all the entries is filled
+     * by its own task. Only the mappings which do not fit into their range are inserted one by one.
+     * The result is an ordinary dictionary and is not changed by the pool after the method returns.
+     * @param entries -- the mappings, the later mapping of a repeated key wins,
+     *                   the spliterator should split well to keep all the threads busy.
+     * @param pool -- the pool running the tasks.
+     * @throws IllegalArgumentException -- if the entries or the pool are null,
+     *                                     or there is a null entry, key or value.
+     */
+    public static <K, V> DictionaryImpl<K, V> parallelCopyOf(
+            @NotNull Spliterator<? extends Entry<? extends K, ? extends V>> entries, @NotNull ForkJoinPool pool)
+            throws IllegalArgumentException {
+        if (entries == null) {
+            throw new IllegalArgumentException("the entries are null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("the pool is null");
+        }
+        DictionaryImpl<K, V> result = new DictionaryImpl<>();
+        ParallelTableBuilder builder = new ParallelTableBuilder(pool, result.spreader);
+        int count = builder.collect(entries);
+        DictionaryImpl<K, V>.Table table = result.new Table(Math.max(result.minCapacity, result.capacityFor(count)));
+        table.size = builder.place(table.keys, table.values, table.probeLengths, table.hashes);
+        for (int i = 0; i < builder.spillCount(); i++) {
+            Object key = builder.spilledKey(i);
+            int hash = builder.spilledHash(i);
+            int position = table.findPosition(key, hash);
+            if (position >= 0) {
+                table.values[position] = builder.spilledValue(i);
+            } else {
+                table.insert(position, hash, key, builder.spilledValue(i));
+            }
+        }
+        result.table = table;
+        return result;
+    }
+
+    /**
+     * Writes the parameters and the mappings of this dictionary to the channel in the slot order of its table,
+     * every mapping is written with its stored hash, so {@link #readSnapshot} puts it back
+     * to the same slot without hashing. An incremental resize in progress is finished first.
+     * The snapshot can be read only with the same hash spreader and if the hash codes of the keys
+     * do not depend on the process, like the ones of strings and boxed numbers.
+     * The shrink policies of {@link ShrinkPolicy} are recorded, a policy of another class is not
+     * and the read dictionary uses {@link ShrinkPolicy#HALVE} instead.
+     * @param channel -- the channel to write the snapshot to, it is not closed.
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @throws IOException -- if the channel can not be written.
+     */
+    public void writeSnapshot(@NotNull WritableByteChannel channel, @NotNull Codec<? super K> keyCodec,
+                              @NotNull Codec<? super V> valueCodec) throws IOException {
+        if (oldTable != null) {
+            migrate(Integer.MAX_VALUE);
+        }
+        SnapshotOutput output = new SnapshotOutput(channel);
+        output.writeInt(SNAPSHOT_MAGIC);
+        output.writeVarInt(minCapacity);
+        output.writeDouble(minLoadFactor);
+        output.writeDouble(maxLoadFactor);
+        output.writeVarInt(resizeMode.ordinal());
+        if (shrinkPolicy == ShrinkPolicy.HALVE) {
+            output.writeVarInt(HALVE_POLICY);
+        } else if (shrinkPolicy == ShrinkPolicy.NEVER) {
+            output.writeVarInt(NEVER_POLICY);
+        } else if (shrinkPolicy instanceof LoadFactorShrinkPolicy) {
+            output.writeVarInt(LOAD_FACTOR_POLICY);
+            output.writeDouble(((LoadFactorShrinkPolicy) shrinkPolicy).targetLoadFactor());
+        } else {
+            output.writeVarInt(CUSTOM_POLICY);
+        }
+        output.writeVarInt(table.capacity());
+        output.writeVarInt(table.size);
+        int previous = -1;
+        for (int i = 0; i < table.capacity(); i++) {
+            if (table.probeLengths[i] != 0) {
+                output.writeVarInt(i - previous);
+                output.writeInt(table.hashes[i]);
+                output.write(keyCodec, table.keyAt(i));
+                output.write(valueCodec, table.valueAt(i));
+                previous = i;
+            }
+        }
+        output.finish();
+    }
+
+    /**
+     * Reads the dictionary written by {@link #writeSnapshot} with the default hash spreader.
+     * @param channel -- the channel to read the snapshot from, it is not closed.
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @return the dictionary with the same parameters and mappings as the written one,
+     *         except a custom shrink policy which is replaced by {@link ShrinkPolicy#HALVE}.
+     * @throws IOException -- if the channel can not be read or the snapshot is corrupted.
+     */
+    public static <K, V> DictionaryImpl<K, V> readSnapshot(@NotNull ReadableByteChannel channel,
+                                                           @NotNull Codec<K> keyCodec,
+                                                           @NotNull Codec<V> valueCodec) throws IOException {
+        return readSnapshot(channel, keyCodec, valueCodec, HashSpreader.MURMUR);
+    }
+
+    /**
+     * Reads the dictionary written by {@link #writeSnapshot}, the mappings are put to their slots without hashing.
+     * Only the first keys are hashed to check that the snapshot was written with the same hash spreader.
+     * @param channel -- the channel to read the snapshot from, it is not closed.
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @param spreader -- the hash spreader of the written dictionary.
+     * @return the dictionary with the same parameters and mappings as the written one,
+     *         except a custom shrink policy which is replaced by {@link ShrinkPolicy#HALVE}.
+     * @throws IOException -- if the channel can not be read or the snapshot is corrupted
+     *                        or it was written with another hash spreader.
+     */
+    public static <K, V> DictionaryImpl<K, V> readSnapshot(@NotNull ReadableByteChannel channel,
+                                                           @NotNull Codec<K> keyCodec, @NotNull Codec<V> valueCodec,
+                                                           @NotNull HashSpreader spreader) throws IOException {
+        SnapshotInput input = new SnapshotInput(channel);
+        int magic = input.readInt();
+        if (magic != SNAPSHOT_MAGIC && magic != SNAPSHOT_MAGIC_WITHOUT_SHRINK_POLICY) {
+            throw new IOException("not a dictionary snapshot");
+        }
+        int minCapacity = input.readVarInt();
+        double minLoadFactor = input.readDouble();
+        double maxLoadFactor = input.readDouble();
+        int resizeMode = input.readVarInt();
+        ShrinkPolicy shrinkPolicy = ShrinkPolicy.HALVE;
+        if (magic == SNAPSHOT_MAGIC) {
+            int policy = input.readVarInt();
+            if (policy == NEVER_POLICY) {
+                shrinkPolicy = ShrinkPolicy.NEVER;
+            } else if (policy == LOAD_FACTOR_POLICY) {
+                try {
+                    shrinkPolicy = ShrinkPolicy.toLoadFactor(input.readDouble());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("the snapshot is corrupted: wrong parameters", e);
+                }
+            } else if (policy != HALVE_POLICY && policy != CUSTOM_POLICY) {
+                throw new IOException("the snapshot is corrupted: wrong parameters");
+            }
+        }
+        int capacity = input.readVarInt();
+        int size = input.readVarInt();
+        if (resizeMode >= ResizeMode.values().length || Integer.bitCount(capacity) != 1 || capacity > MAXIMUM_CAPACITY
+                || size < 0 || size > capacity) {
+            throw new IOException("the snapshot is corrupted: wrong parameters");
+        }
+        DictionaryImpl<K, V> result;
+        try {
+            result = new DictionaryImpl<>(minCapacity, minLoadFactor, maxLoadFactor, spreader,
+                    ResizeMode.values()[resizeMode], shrinkPolicy);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("the snapshot is corrupted: wrong parameters", e);
+        }
+        DictionaryImpl<K, V>.Table table = result.new Table(capacity);
+        int index = -1;
+        for (int i = 0; i < size; i++) {
+            int gap = input.readVarInt();
+            index += gap;
+            int hash = input.readInt();
+            if (gap <= 0 || index < 0 || index >= capacity) {
+                throw new IOException("the snapshot is corrupted: wrong slot");
+            }
+            K key = input.read(keyCodec);
+            V value = input.read(valueCodec);
+            checkMapping(key, value);
+            if (i < VERIFIED_SNAPSHOT_KEYS && hash != result.hash(key)) {
+                throw new IOException("the snapshot was written with another hash spreader or unstable hash codes");
+            }
+            table.keys[index] = key;
+            table.values[index] = value;
+            table.probeLengths[index] = ((index - hash) & table.mask) + 1;
+            table.hashes[index] = hash;
+        }
+        input.verifyChecksum();
+        table.size = size;
+        result.table = table;
+        return result;
+    }
 
     /**
      * Removes all of the mappings from this dictionary.
      */
     @Override
     public void clear() {
-        build(minCapacity);
+        modCount++;
+        table = new Table(minCapacity);
+        oldTable = null;
     }
 
     /**
@@ -341,7 +1302,7 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
      */
     @Override
     public @NotNull Set<K> keySet() {
-        return new DictionaryKeySet(entrySet());
+        return new DictionaryKeySet();
     }
 
     /**
@@ -349,7 +1310,7 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
      */
     @Override
     public @NotNull Collection<V> values() {
-        return new DictionaryValueCollection(entrySet());
+        return new DictionaryValueCollection();
     }
 
     /**
@@ -0,0 +1,107 @@
+package ru.hse.java.util;
+
+import java.util.Arrays;
+
+/**
+ * The immutable snapshot of the state of a {@link DictionaryImpl} and of its resizes, see {@link DictionaryImpl#statistics()}.
+ * The slot counts and the probe lengths include the old table while an incremental resize is in progress.
+ */
+public final class DictionaryStatistics {
+    private final int capacity;
+    private final int liveSlots;
+    private final int tombstoneSlots;
+    private final int[] probeLengthCounts;
+    private final long rehashCount;
+    private final long rehashNanos;
+
+    DictionaryStatistics(int capacity, int liveSlots, int tombstoneSlots, int[] probeLengthCounts,
+                         long rehashCount, long rehashNanos) {
+        this.capacity = capacity;
+        this.liveSlots = liveSlots;
+        this.tombstoneSlots = tombstoneSlots;
+        this.probeLengthCounts = probeLengthCounts;
+        this.rehashCount = rehashCount;
+        this.rehashNanos = rehashNanos;
+    }
+
+    /**
+     * @return the number of slots of the tables.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of slots holding the mappings.
+     */
+    public int liveSlots() {
+        return liveSlots;
+    }
+
+    /**
+     * @return the number of slots of the removed mappings which are still not free.
+     */
+    public int tombstoneSlots() {
+        return tombstoneSlots;
+    }
+
+    /**
+     * @return the number of slots which are not free: the live ones and the tombstones.
+     */
+    public int occupiedSlots() {
+        return liveSlots + tombstoneSlots;
+    }
+
+    /**
+     * @return the probe length histogram, the element i is the number of the mappings
+     *         whose successful lookup probes i + 1 slots. The array is a copy.
+     */
+    public int[] probeLengthCounts() {
+        return probeLengthCounts.clone();
+    }
+
+    /**
+     * @return the maximal number of slots probed by a successful lookup, 0 if there are no mappings.
+     */
+    public int maxProbeLength() {
+        return probeLengthCounts.length;
+    }
+
+    /**
+     * @return the average number of slots probed by a successful lookup, 0 if there are no mappings.
+     */
+    public double averageProbeLength() {
+        long total = 0;
+        for (int i = 0; i < probeLengthCounts.length; i++) {
+            total += (long) (i + 1) * probeLengthCounts[i];
+        }
+        return liveSlots == 0 ? 0 : (double) total / liveSlots;
+    }
+
+    /**
+     * @return the number of resizes since the statistics were enabled.
+     */
+    public long rehashCount() {
+        return rehashCount;
+    }
+
+    /**
+     * @return the time spent in the resizes and in the steps of the incremental migrations
+     *         since the statistics were enabled, in nanoseconds.
+     */
+    public long rehashNanos() {
+        return rehashNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryStatistics{capacity=" + capacity
+                + ", liveSlots=" + liveSlots
+                + ", tombstoneSlots=" + tombstoneSlots
+                + ", maxProbeLength=" + maxProbeLength()
+                + ", averageProbeLength=" + averageProbeLength()
+                + ", probeLengthCounts=" + Arrays.toString(probeLengthCounts)
+                + ", rehashCount=" + rehashCount
+                + ", rehashNanos=" + rehashNanos + "}";
+    }
+}
@@ -0,0 +1,60 @@
+package ru.hse.java.util;
+
+import ru.hse.java.util.CacheDictionary.Node;
+
+/**
+ * Chooses the mappings which a {@link CacheDictionary} evicts when it becomes too heavy.
+ * A policy is notified about every insertion, access and removal of a node,
+ * so it can keep the nodes ordered without looking them up.
+ * A policy instance belongs to one cache and is not thread-safe.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public interface EvictionPolicy<K, V> {
+
+    /**
+     * Evicts the least recently used mapping.
+     */
+    static <K, V> EvictionPolicy<K, V> lru() {
+        return new LruPolicy<>();
+    }
+
+    /**
+     * Keeps the new mappings in a small LRU window and admits a mapping leaving the window
+     * into the main segmented LRU only if it is used more frequently than the main victim.
+     * The frequencies are estimated by an aging count-min sketch, so a scan over many
+     * once-used keys does not flush the frequently used ones.
+     */
+    static <K, V> EvictionPolicy<K, V> windowTinyLfu() {
+        return new WindowTinyLfuPolicy<>();
+    }
+
+    /**
+     * Called once by the cache before any other method.
+     * @param maximumWeight -- the maximal total weight of the mappings in the cache.
+     */
+    default void setMaximumWeight(long maximumWeight) {
+    }
+
+    /**
+     * @param node -- the node which has been just put in the cache.
+     */
+    void onInsert(Node<K, V> node);
+
+    /**
+     * @param node -- the node which has been just read or overwritten.
+     */
+    void onAccess(Node<K, V> node);
+
+    /**
+     * @param node -- the node which has been just removed from the cache.
+     */
+    void onRemove(Node<K, V> node);
+
+    /**
+     * Called while the cache is too heavy, the cache removes the returned node
+     * and calls {@link #onRemove(Node)} for it.
+     * @return a node contained in the cache.
+     */
+    Node<K, V> selectVictim();
+}
@@ -0,0 +1,68 @@
+package ru.hse.java.util;
+
+/**
+ * Count-min sketch estimating how often a hash was seen, with 4-bit counters packed by 16 in a long.
+ * After a sample of increments proportional to the table length all the counters are halved,
+ * so the estimate forgets the old history.
+ */
+class FrequencySketch {
+    private static final int MAXIMUM_LENGTH = 1 << 24;
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int[] SEEDS = {0x97cb3127, 0xb7e15163, 0x9e3779b9, 0xc3a5c85c};
+    private static final int MAXIMUM_COUNT = 15;
+
+    private final long[] table;
+    private final int sampleSize;
+    private int additions = 0;
+
+    /**
+     * @param expectedSize -- the number of distinct hashes whose frequencies matter.
+     */
+    FrequencySketch(long expectedSize) {
+        int length = (int) Math.max(1, Math.min(expectedSize, MAXIMUM_LENGTH));
+        length = Integer.highestOneBit(length - 1) << 1;
+        table = new long[Math.max(length, 1)];
+        sampleSize = 10 * table.length;
+    }
+
+    private int mixedHash(int hash, int row) {
+        return HashSpreader.mix(hash ^ SEEDS[row]);
+    }
+
+    private int counter(int mixedHash) {
+        int offset = (mixedHash >>> 28) << 2;
+        return (int) (table[mixedHash & (table.length - 1)] >>> offset) & MAXIMUM_COUNT;
+    }
+
+    /**
+     * @return the estimated number of the recent increments of the hash, at most 15.
+     */
+    int frequency(int hash) {
+        int result = MAXIMUM_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            result = Math.min(result, counter(mixedHash(hash, row)));
+        }
+        return result;
+    }
+
+    void increment(int hash) {
+        boolean isAdded = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int mixedHash = mixedHash(hash, row);
+            if (counter(mixedHash) < MAXIMUM_COUNT) {
+                table[mixedHash & (table.length - 1)] += 1L << ((mixedHash >>> 28) << 2);
+                isAdded = true;
+            }
+        }
+        if (isAdded && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+}
@@ -0,0 +1,454 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The immutable data struct for storage of mappings loaded once and then only read.
+ * The key can not be null. The value can not be null.
+ * The mappings are placed by a minimal perfect hash function built by the hash and displace algorithm:
+ * the keys are split into small buckets by their hash codes, and every bucket gets a seed
+ * which sends its keys to free slots, so there are exactly as many slots as mappings.
+ * A lookup computes the hash code once and compares the key with the key of the single candidate slot.
+ * Keys with equal spread hash codes can not be separated by any seed, such keys are kept
+ * in the overflow arrays sorted by the hash codes, which are searched only when the candidate slot does not match.
+ * All the fields are final and the arrays are not modified after the construction,
+ * so the dictionary may be shared between threads without synchronization.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class FrozenDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int AVERAGE_BUCKET_SIZE = 4;
+    private static final int MAX_SEED = 1 << 16;
+    private static final int SEED_MULTIPLIER = 0x9e3779b9;
+
+    private final HashSpreader spreader;
+    private final Object[] keys;
+    private final Object[] values;
+    // a positive seed mixes the hash codes of the bucket, a negative one is the inverted slot of a single key
+    private final int[] seeds;
+    private final int[] overflowHashes;
+    private final Object[] overflowKeys;
+    private final Object[] overflowValues;
+    private final int size;
+
+    /**
+     * Iterates over the slots and then over the overflow.
+     */
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int nextIndex = skipFree(0);
+
+        private int skipFree(int index) {
+            while (index < keys.length && keys[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+        protected abstract T extract(Object key, Object value);
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < keys.length + overflowKeys.length;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = nextIndex;
+            if (index < keys.length) {
+                nextIndex = skipFree(index + 1);
+                return extract(keys[index], values[index]);
+            }
+            nextIndex++;
+            return extract(overflowKeys[index - keys.length], overflowValues[index - keys.length]);
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected Entry<K, V> extract(Object key, Object value) {
+                    return new SimpleImmutableEntry<>((K) key, (V) value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected K extract(Object key, Object value) {
+                    return (K) key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected V extract(Object key, Object value) {
+                    return (V) value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs the frozen copy of the mappings with the default hash spreader.
+     * @param source -- the mappings to copy, the later changes of it do not affect the dictionary.
+     * @throws IllegalArgumentException -- if the source is null or contains a null key or a null value.
+     */
+    public FrozenDictionary(@NotNull Map<? extends K, ? extends V> source) throws IllegalArgumentException {
+        this(source, HashSpreader.MURMUR);
+    }
+
+    /**
+     * Constructs the frozen copy of the mappings.
+     * @param source -- the mappings to copy, the later changes of it do not affect the dictionary.
+     * @param spreader -- the function mixing hash codes of the keys before they are split into buckets.
+     * @throws IllegalArgumentException -- if the source or the spreader is null,
+     *                                     or the source contains a null key or a null value.
+     */
+    public FrozenDictionary(@NotNull Map<? extends K, ? extends V> source, @NotNull HashSpreader spreader)
+            throws IllegalArgumentException {
+        if (source == null) {
+            throw new IllegalArgumentException("the source is null");
+        }
+        if (spreader == null) {
+            throw new IllegalArgumentException("the spreader is null");
+        }
+        this.spreader = spreader;
+        Object[] sourceKeys = new Object[source.size()];
+        Object[] sourceValues = new Object[source.size()];
+        int[] hashes = new int[source.size()];
+        int count = 0;
+        for (Entry<? extends K, ? extends V> entry : source.entrySet()) {
+            if (entry.getKey() == null) {
+                throw new IllegalArgumentException("the key is null");
+            }
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            sourceKeys[count] = entry.getKey();
+            sourceValues[count] = entry.getValue();
+            hashes[count] = hash(entry.getKey());
+            count++;
+        }
+        size = count;
+        // the mappings are sorted by their hash codes to find the repeated ones
+        long[] order = new long[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = (long) hashes[i] << 32 | i;
+        }
+        Arrays.sort(order);
+        boolean[] isRepeated = new boolean[size];
+        int repeated = 0;
+        for (int i = 1; i < size; i++) {
+            if (order[i] >> 32 == order[i - 1] >> 32) {
+                isRepeated[(int) order[i]] = true;
+                repeated++;
+            }
+        }
+        keys = new Object[size - repeated];
+        values = new Object[size - repeated];
+        seeds = new int[(keys.length + AVERAGE_BUCKET_SIZE - 1) / AVERAGE_BUCKET_SIZE];
+        boolean[] isPlaced = place(hashes, isRepeated, sourceKeys, sourceValues);
+        int rest = 0;
+        for (boolean placed : isPlaced) {
+            rest += placed ? 0 : 1;
+        }
+        overflowHashes = new int[rest];
+        overflowKeys = new Object[rest];
+        overflowValues = new Object[rest];
+        rest = 0;
+        for (long next : order) {
+            int index = (int) next;
+            if (!isPlaced[index]) {
+                overflowHashes[rest] = hashes[index];
+                overflowKeys[rest] = sourceKeys[index];
+                overflowValues[rest] = sourceValues[index];
+                rest++;
+            }
+        }
+    }
+
+    /**
+     * Chooses the seeds of the buckets from the largest bucket to the smallest one
+     * and puts the mappings in their slots.
+     * @return which of the source mappings are placed, the others go to the overflow.
+     */
+    private boolean[] place(int[] hashes, boolean[] isRepeated, Object[] sourceKeys, Object[] sourceValues) {
+        boolean[] isPlaced = new boolean[hashes.length];
+        if (keys.length == 0) {
+            return isPlaced;
+        }
+        // the mappings are sorted by their buckets with a counting sort
+        int[] bucketStarts = new int[seeds.length + 1];
+        for (int i = 0; i < hashes.length; i++) {
+            if (!isRepeated[i]) {
+                bucketStarts[bucketOf(hashes[i]) + 1]++;
+            }
+        }
+        int maxBucketSize = 0;
+        for (int i = 0; i < seeds.length; i++) {
+            maxBucketSize = Math.max(maxBucketSize, bucketStarts[i + 1]);
+            bucketStarts[i + 1] += bucketStarts[i];
+        }
+        int[] members = new int[keys.length];
+        int[] filled = Arrays.copyOf(bucketStarts, seeds.length);
+        for (int i = 0; i < hashes.length; i++) {
+            if (!isRepeated[i]) {
+                members[filled[bucketOf(hashes[i])]++] = i;
+            }
+        }
+        // the buckets are sorted by their sizes in the descending order with a counting sort
+        int[] sizeStarts = new int[maxBucketSize + 2];
+        for (int i = 0; i < seeds.length; i++) {
+            sizeStarts[maxBucketSize - (bucketStarts[i + 1] - bucketStarts[i]) + 1]++;
+        }
+        for (int i = 0; i <= maxBucketSize; i++) {
+            sizeStarts[i + 1] += sizeStarts[i];
+        }
+        int[] buckets = new int[seeds.length];
+        for (int i = 0; i < seeds.length; i++) {
+            buckets[sizeStarts[maxBucketSize - (bucketStarts[i + 1] - bucketStarts[i])]++] = i;
+        }
+        int[] positions = new int[maxBucketSize];
+        int nextFree = 0;
+        for (int bucket : buckets) {
+            int start = bucketStarts[bucket];
+            int bucketSize = bucketStarts[bucket + 1] - start;
+            if (bucketSize == 0) {
+                break;
+            }
+            if (bucketSize == 1) {
+                // a single key takes any free slot directly
+                while (keys[nextFree] != null) {
+                    nextFree++;
+                }
+                seeds[bucket] = ~nextFree;
+                positions[0] = nextFree;
+            } else {
+                seeds[bucket] = findSeed(hashes, members, start, bucketSize, positions);
+                if (seeds[bucket] == 0) {
+                    continue;
+                }
+            }
+            for (int i = 0; i < bucketSize; i++) {
+                int member = members[start + i];
+                keys[positions[i]] = sourceKeys[member];
+                values[positions[i]] = sourceValues[member];
+                isPlaced[member] = true;
+            }
+        }
+        return isPlaced;
+    }
+
+    /**
+     * @return the least seed sending the keys of the bucket to distinct free slots,
+     *         which are stored in the positions, or 0 if there is no such seed.
+     */
+    private int findSeed(int[] hashes, int[] members, int start, int bucketSize, int[] positions) {
+        for (int seed = 1; seed < MAX_SEED; seed++) {
+            boolean isFree = true;
+            for (int i = 0; i < bucketSize && isFree; i++) {
+                positions[i] = slotOf(hashes[members[start + i]], seed);
+                isFree = keys[positions[i]] == null;
+                for (int j = 0; j < i && isFree; j++) {
+                    isFree = positions[j] != positions[i];
+                }
+            }
+            if (isFree) {
+                return seed;
+            }
+        }
+        return 0;
+    }
+
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
+    }
+
+    /**
+     * @return the value in [0, bound) taken from the high bits of the hash.
+     */
+    private static int reduce(int hash, int bound) {
+        return (int) (((hash & 0xffffffffL) * bound) >>> 32);
+    }
+
+    private int bucketOf(int hash) {
+        return reduce(hash, seeds.length);
+    }
+
+    private int slotOf(int hash, int seed) {
+        if (seed < 0) {
+            return ~seed;
+        }
+        return reduce(HashSpreader.mix(hash ^ seed * SEED_MULTIPLIER), keys.length);
+    }
+
+    /**
+     * @return the index of the slot of the key, the index in the overflow plus the number of the slots,
+     *         or -1 if there is no such key.
+     */
+    private int find(Object key) {
+        int hash = hash(key);
+        if (keys.length > 0) {
+            int index = slotOf(hash, seeds[bucketOf(hash)]);
+            if (key.equals(keys[index])) {
+                return index;
+            }
+        }
+        if (overflowKeys.length == 0) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(overflowHashes, hash);
+        if (index < 0) {
+            return -1;
+        }
+        while (index > 0 && overflowHashes[index - 1] == hash) {
+            index--;
+        }
+        for (; index < overflowKeys.length && overflowHashes[index] == hash; index++) {
+            if (key.equals(overflowKeys[index])) {
+                return keys.length + index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        if (key == null) {
+            return false;
+        }
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        return (V) (index < keys.length ? values[index] : overflowValues[index - keys.length]);
+    }
+
+    /**
+     * The dictionary is immutable.
+     * @throws UnsupportedOperationException -- always.
+     */
+    @Override
+    public V put(K key, V value) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the dictionary is frozen");
+    }
+
+    /**
+     * The dictionary is immutable.
+     * @throws UnsupportedOperationException -- always.
+     */
+    @Override
+    public V remove(Object key) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the dictionary is frozen");
+    }
+
+    /**
+     * The dictionary is immutable.
+     * @throws UnsupportedOperationException -- always.
+     */
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the dictionary is frozen");
+    }
+
+    /**
+     * The dictionary is immutable.
+     * @throws UnsupportedOperationException -- always.
+     */
+    @Override
+    public void clear() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("the dictionary is frozen");
+    }
+
+    /**
+     * @return a read-only set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a read-only collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a read-only set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
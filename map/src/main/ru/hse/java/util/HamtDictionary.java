@@ -0,0 +1,696 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The data struct for storage of mappings whose versions share their structure.
+ * The key can not be null. The value can not be null.
+ * The mappings are stored in a hash array mapped trie: every node takes 5 bits of the spread hash code
+ * and keeps the mappings and the child nodes in one array compressed by two bitmaps,
+ * the keys with equal spread hash codes are kept in a collision node at the bottom.
+ * {@link #snapshot()}, {@link #plus(Object, Object)} and {@link #minus(Object)} return new versions in O(1)
+ * or in O(log n) and leave this dictionary unchanged, the versions share all the nodes which are not changed.
+ * Every dictionary owns an edit token, the nodes created by the dictionary carry its token and are changed in place
+ * until a version sharing them is taken, then the token is replaced and the next changes copy the path to the root.
+ * So the mutating methods of {@link Dictionary} are the fast transient mode for the bulk construction,
+ * and a snapshot handed to the reader threads is not affected by the later changes of this dictionary.
+ * One dictionary must not be used by several threads at once.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class HamtDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int BITS_PER_LEVEL = 5;
+    private static final int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+    // seven bitmap levels take all the bits of the hash code, the collision nodes are below them
+    private static final int MAX_DEPTH = 8;
+
+    private final HashSpreader spreader;
+    private Node root;
+    private int size;
+    private Object edit = new Object();
+    private int modCount = 0;
+
+    /**
+     * The result of a change besides the new node.
+     */
+    private static class Change {
+        private final HashSpreader spreader;
+        private Object oldValue;
+        private boolean isSizeChanged;
+
+        Change(HashSpreader spreader) {
+            this.spreader = spreader;
+        }
+    }
+
+    private abstract static class Node {
+        protected Object edit;
+        // the mappings first and then the child nodes
+        protected Object[] content;
+
+        Node(Object edit, Object[] content) {
+            this.edit = edit;
+            this.content = content;
+        }
+
+        /**
+         * @return the value by the key or null.
+         */
+        abstract Object find(Object key, int hash, int shift);
+
+        /**
+         * @return the node with the mapping, this node if it is changed in place or nothing is changed.
+         */
+        abstract Node put(Object edit, Object key, int hash, Object value, int shift, Change change);
+
+        /**
+         * @return the node without the mapping, this node if it is changed in place or nothing is changed.
+         */
+        abstract Node remove(Object edit, Object key, int hash, int shift, Change change);
+
+        abstract int mappingCount();
+
+        abstract int childCount();
+
+        Node childAt(int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        boolean isOwnedBy(Object edit) {
+            return edit != null && this.edit == edit;
+        }
+    }
+
+    /**
+     * The children are stored at the end of the content in the reversed order,
+     * so the mappings and the children can grow towards each other.
+     */
+    private static class BitmapNode extends Node {
+        private int mappingMap;
+        private int childMap;
+
+        BitmapNode(Object edit, int mappingMap, int childMap, Object[] content) {
+            super(edit, content);
+            this.mappingMap = mappingMap;
+            this.childMap = childMap;
+        }
+
+        private static int bitOf(int hash, int shift) {
+            return 1 << ((hash >>> shift) & LEVEL_MASK);
+        }
+
+        private static int indexOf(int bitmap, int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        int mappingCount() {
+            return Integer.bitCount(mappingMap);
+        }
+
+        @Override
+        int childCount() {
+            return Integer.bitCount(childMap);
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitOf(hash, shift);
+            if ((mappingMap & bit) != 0) {
+                int index = indexOf(mappingMap, bit);
+                return key.equals(keyAt(index)) ? valueAt(index) : null;
+            }
+            if ((childMap & bit) != 0) {
+                return childAt(indexOf(childMap, bit)).find(key, hash, shift + BITS_PER_LEVEL);
+            }
+            return null;
+        }
+
+        private BitmapNode update(Object edit, int mappingMap, int childMap, Object[] content) {
+            if (isOwnedBy(edit)) {
+                this.mappingMap = mappingMap;
+                this.childMap = childMap;
+                this.content = content;
+                return this;
+            }
+            return new BitmapNode(edit, mappingMap, childMap, content);
+        }
+
+        private BitmapNode updateSlot(Object edit, int slot, Object value) {
+            if (isOwnedBy(edit)) {
+                content[slot] = value;
+                return this;
+            }
+            Object[] newContent = content.clone();
+            newContent[slot] = value;
+            return new BitmapNode(edit, mappingMap, childMap, newContent);
+        }
+
+        @Override
+        Node put(Object edit, Object key, int hash, Object value, int shift, Change change) {
+            int bit = bitOf(hash, shift);
+            if ((mappingMap & bit) != 0) {
+                int index = indexOf(mappingMap, bit);
+                Object currentKey = keyAt(index);
+                if (key.equals(currentKey)) {
+                    change.oldValue = valueAt(index);
+                    return change.oldValue == value ? this : updateSlot(edit, 2 * index + 1, value);
+                }
+                // the mapping goes down together with the new one
+                Node child = merge(edit, currentKey, change.spreader.spread(currentKey.hashCode()), valueAt(index),
+                        key, hash, value, shift + BITS_PER_LEVEL);
+                change.isSizeChanged = true;
+                return update(edit, mappingMap ^ bit, childMap | bit,
+                        insertChild(content, 2 * index, indexOf(childMap, bit), child));
+            }
+            if ((childMap & bit) != 0) {
+                int index = indexOf(childMap, bit);
+                Node child = childAt(index);
+                Node newChild = child.put(edit, key, hash, value, shift + BITS_PER_LEVEL, change);
+                return newChild == child ? this : updateSlot(edit, content.length - 1 - index, newChild);
+            }
+            change.isSizeChanged = true;
+            int index = indexOf(mappingMap, bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, 2 * index);
+            newContent[2 * index] = key;
+            newContent[2 * index + 1] = value;
+            System.arraycopy(content, 2 * index, newContent, 2 * index + 2, content.length - 2 * index);
+            return update(edit, mappingMap | bit, childMap, newContent);
+        }
+
+        /**
+         * @return the content without the mapping at the specified slot and with the child
+         *         inserted at the specified index of the children.
+         */
+        private static Object[] insertChild(Object[] content, int mappingSlot, int childIndex, Node child) {
+            Object[] newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, mappingSlot);
+            // the children are reversed, so the child with the index i is at length - 1 - i
+            int childSlot = content.length - childIndex;
+            System.arraycopy(content, mappingSlot + 2, newContent, mappingSlot, childSlot - mappingSlot - 2);
+            newContent[childSlot - 2] = child;
+            System.arraycopy(content, childSlot, newContent, childSlot - 1, content.length - childSlot);
+            return newContent;
+        }
+
+        /**
+         * @return the content without the child at the specified index of the children
+         *         and with the mapping inserted at the specified slot.
+         */
+        private static Object[] insertMapping(Object[] content, int mappingSlot, int childIndex,
+                                              Object key, Object value) {
+            Object[] newContent = new Object[content.length + 1];
+            int childSlot = content.length - 1 - childIndex;
+            System.arraycopy(content, 0, newContent, 0, mappingSlot);
+            newContent[mappingSlot] = key;
+            newContent[mappingSlot + 1] = value;
+            System.arraycopy(content, mappingSlot, newContent, mappingSlot + 2, childSlot - mappingSlot);
+            System.arraycopy(content, childSlot + 1, newContent, childSlot + 2, content.length - childSlot - 1);
+            return newContent;
+        }
+
+        @Override
+        Node remove(Object edit, Object key, int hash, int shift, Change change) {
+            int bit = bitOf(hash, shift);
+            if ((mappingMap & bit) != 0) {
+                int index = indexOf(mappingMap, bit);
+                if (!key.equals(keyAt(index))) {
+                    return this;
+                }
+                change.oldValue = valueAt(index);
+                change.isSizeChanged = true;
+                Object[] newContent = new Object[content.length - 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * index);
+                System.arraycopy(content, 2 * index + 2, newContent, 2 * index, content.length - 2 * index - 2);
+                return update(edit, mappingMap ^ bit, childMap, newContent);
+            }
+            if ((childMap & bit) != 0) {
+                int index = indexOf(childMap, bit);
+                Node child = childAt(index);
+                Node newChild = child.remove(edit, key, hash, shift + BITS_PER_LEVEL, change);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild.mappingCount() == 1 && newChild.childCount() == 0) {
+                    // the last mapping of the child moves up, so a trie is the same for any order of changes
+                    return update(edit, mappingMap | bit, childMap ^ bit, insertMapping(content,
+                            2 * indexOf(mappingMap, bit), index, newChild.keyAt(0), newChild.valueAt(0)));
+                }
+                return updateSlot(edit, content.length - 1 - index, newChild);
+            }
+            return this;
+        }
+
+        /**
+         * @return the node with the two mappings whose keys are different.
+         */
+        static Node merge(Object edit, Object firstKey, int firstHash, Object firstValue,
+                          Object secondKey, int secondHash, Object secondValue, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(edit, new Object[]{firstKey, firstValue, secondKey, secondValue});
+            }
+            int firstBit = bitOf(firstHash, shift);
+            int secondBit = bitOf(secondHash, shift);
+            if (firstBit == secondBit) {
+                Node child = merge(edit, firstKey, firstHash, firstValue,
+                        secondKey, secondHash, secondValue, shift + BITS_PER_LEVEL);
+                return new BitmapNode(edit, 0, firstBit, new Object[]{child});
+            }
+            Object[] content = Integer.compareUnsigned(firstBit, secondBit) < 0
+                    ? new Object[]{firstKey, firstValue, secondKey, secondValue}
+                    : new Object[]{secondKey, secondValue, firstKey, firstValue};
+            return new BitmapNode(edit, firstBit | secondBit, 0, content);
+        }
+    }
+
+    /**
+     * The mappings whose keys have equal spread hash codes.
+     */
+    private static class CollisionNode extends Node {
+
+        CollisionNode(Object edit, Object[] content) {
+            super(edit, content);
+        }
+
+        @Override
+        int mappingCount() {
+            return content.length / 2;
+        }
+
+        @Override
+        int childCount() {
+            return 0;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (key.equals(content[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? null : content[index + 1];
+        }
+
+        private CollisionNode update(Object edit, Object[] content) {
+            if (isOwnedBy(edit)) {
+                this.content = content;
+                return this;
+            }
+            return new CollisionNode(edit, content);
+        }
+
+        @Override
+        Node put(Object edit, Object key, int hash, Object value, int shift, Change change) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                change.oldValue = content[index + 1];
+                if (change.oldValue == value) {
+                    return this;
+                }
+                Object[] newContent = isOwnedBy(edit) ? content : content.clone();
+                newContent[index + 1] = value;
+                return update(edit, newContent);
+            }
+            change.isSizeChanged = true;
+            Object[] newContent = Arrays.copyOf(content, content.length + 2);
+            newContent[content.length] = key;
+            newContent[content.length + 1] = value;
+            return update(edit, newContent);
+        }
+
+        @Override
+        Node remove(Object edit, Object key, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            change.oldValue = content[index + 1];
+            change.isSizeChanged = true;
+            Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, index);
+            System.arraycopy(content, index + 2, newContent, index, content.length - index - 2);
+            return update(edit, newContent);
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Walks the trie in depth with a stack of the nodes.
+     * A removal through the iterator releases the nodes of the dictionary,
+     * so the following changes copy the nodes instead of changing the traversed ones.
+     */
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private final Node[] nodes = new Node[MAX_DEPTH + 1];
+        private final int[] nextMappings = new int[MAX_DEPTH + 1];
+        private final int[] nextChildren = new int[MAX_DEPTH + 1];
+        private int depth = 0;
+        private int expectedModCount = modCount;
+        private Object lastKey = null;
+        private boolean isReleased = false;
+
+        DictionaryIterator() {
+            nodes[0] = root;
+            advance();
+        }
+
+        /**
+         * Goes to the node whose next mapping is the next one of the iteration, or sets the depth to -1.
+         */
+        private void advance() {
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (nextMappings[depth] < node.mappingCount()) {
+                    return;
+                }
+                if (nextChildren[depth] < node.childCount()) {
+                    Node child = node.childAt(nextChildren[depth]++);
+                    depth++;
+                    nodes[depth] = child;
+                    nextMappings[depth] = 0;
+                    nextChildren[depth] = 0;
+                } else {
+                    depth--;
+                }
+            }
+        }
+
+        protected abstract T extract(Object key, Object value);
+
+        @Override
+        public boolean hasNext() {
+            return depth >= 0;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node node = nodes[depth];
+            int index = nextMappings[depth]++;
+            lastKey = node.keyAt(index);
+            T result = extract(lastKey, node.valueAt(index));
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            if (!isReleased) {
+                edit = new Object();
+                isReleased = true;
+            }
+            HamtDictionary.this.remove(lastKey);
+            expectedModCount = modCount;
+            lastKey = null;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected Entry<K, V> extract(Object key, Object value) {
+                    return new DictionaryEntry((K) key, (V) value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected K extract(Object key, Object value) {
+                    return (K) key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                protected V extract(Object key, Object value) {
+                    return (V) value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with the default hash spreader.
+     */
+    public HamtDictionary() {
+        this(HashSpreader.MURMUR);
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param spreader -- the function mixing hash codes of the keys, every level of the trie takes 5 bits of it
+     *                    starting from the low ones.
+     * @throws IllegalArgumentException -- if the spreader is null.
+     */
+    public HamtDictionary(@NotNull HashSpreader spreader) throws IllegalArgumentException {
+        this(spreader, new BitmapNode(null, 0, 0, new Object[0]), 0);
+        if (spreader == null) {
+            throw new IllegalArgumentException("the spreader is null");
+        }
+    }
+
+    private HamtDictionary(HashSpreader spreader, Node root, int size) {
+        this.spreader = spreader;
+        this.root = root;
+        this.size = size;
+    }
+
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+
+    /**
+     * Takes the version of this dictionary in O(1), the later changes of this dictionary
+     * and of the version do not affect each other. The first change of a node after a snapshot copies it.
+     * @return the dictionary with the same mappings.
+     */
+    public HamtDictionary<K, V> snapshot() {
+        edit = new Object();
+        return new HamtDictionary<>(spreader, root, size);
+    }
+
+    /**
+     * @param key -- the key of the mapping.
+     * @param value -- the value of the mapping.
+     * @return the new version with the mapping, this dictionary is not changed.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    public HamtDictionary<K, V> plus(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        HamtDictionary<K, V> result = snapshot();
+        result.put(key, value);
+        return result;
+    }
+
+    /**
+     * @param key -- the key whose mapping we want to delete.
+     * @return the new version without the mapping, this dictionary is not changed.
+     */
+    public HamtDictionary<K, V> minus(Object key) {
+        HamtDictionary<K, V> result = snapshot();
+        result.remove(key);
+        return result;
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        return (V) root.find(key, hash(key), 0);
+    }
+
+    /**
+     * Puts the mapping in this dictionary, the nodes owned by this dictionary are changed in place.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        Change change = new Change(spreader);
+        root = root.put(edit, key, hash(key), value, 0, change);
+        if (change.isSizeChanged) {
+            size++;
+            modCount++;
+        }
+        return (V) change.oldValue;
+    }
+
+    /**
+     * Removes the mapping with the specified key, the nodes owned by this dictionary are changed in place.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Change change = new Change(spreader);
+        root = root.remove(edit, key, hash(key), 0, change);
+        if (change.isSizeChanged) {
+            size--;
+            modCount++;
+        }
+        return (V) change.oldValue;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary, the versions taken before are not changed.
+     */
+    @Override
+    public void clear() {
+        root = new BitmapNode(edit, 0, 0, new Object[0]);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
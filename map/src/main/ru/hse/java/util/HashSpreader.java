@@ -0,0 +1,42 @@
+package ru.hse.java.util;
+
+/**
+ * Mixes the bits of a hash code before a hash table takes its low bits as a slot index.
+ * Keys with equal hash codes always collide, a spreader only decides how different hash codes
+ * are distributed among the slots.
+ */
+@FunctionalInterface
+public interface HashSpreader {
+
+    /**
+     * The finalization step of MurmurHash3, every input bit affects every output bit.
+     */
+    HashSpreader MURMUR = HashSpreader::mix;
+
+    /**
+     * @return the spread hash code, the table uses its low bits as the slot index.
+     */
+    int spread(int hash);
+
+    /**
+     * The seed is unknown to a client which sends the keys, so it can not choose
+     * distinct hash codes falling into the same slots.
+     * @return the spreader which mixes the hash code together with the specified seed.
+     */
+    static HashSpreader seeded(int seed) {
+        int mixedSeed = mix(seed) | 1;
+        return hash -> mix((hash ^ seed) * mixedSeed);
+    }
+
+    /**
+     * The finalization step of MurmurHash3.
+     */
+    static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.hse.java.util;
+
+/*
+ * Хеш-таблица с ключами типа int
+ * Методы с примитивным ключом не упаковывают ключ в Integer,
+ *   сам словарь при этом остаётся обычным Dictionary<Integer, V>
+ */
+public interface IntDictionary<V> extends Dictionary<Integer, V> {
+    // true, если такой ключ содержится в таблице, иначе false
+    boolean containsIntKey(int key);
+
+    // Возвращает значение, хранимое по ключу key. Если такого нет, возвращает null
+    V getInt(int key);
+
+    /*
+     * Положить по ключу key значение value и вернуть ранее хранимое, либо null
+     * Провести рехеширование по необходимости
+     */
+    V putInt(int key, V value);
+
+    /*
+     * Забыть про пару key-value для переданного key
+     * и вернуть забытое value, либо null, если такой пары не было;
+     * провести рехеширование по необходимости
+     */
+    V removeInt(int key);
+}
@@ -0,0 +1,90 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The data struct for storage of mappings with int keys.
+ * The value can not be null.
+ * Keys are kept unboxed in a primitive array, they are boxed only by the Map methods and views.
+ * The table is shared with {@link LongDictionaryImpl}, see {@link PrimitiveKeyDictionary}.
+ * @param <V> -- the type of values.
+ */
+public class IntDictionaryImpl<V> extends PrimitiveKeyDictionary<Integer, V> implements IntDictionary<V> {
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16),
+     * the default initial min load factor (0.25) and the default initial max load factor (0.75).
+     */
+    public IntDictionaryImpl() {
+        super();
+    }
+
+    /**
+     * Constructs an empty dictionary with the specified parameters.
+     * @param initCapacity -- the initial capacity.
+     * @param initMinLoadFactor -- the initial min load factor.
+     * @param initMaxLoadFactor -- the initial max load factor.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or
+     *                                     the min initial load factor is not in [0, 0.5] or
+     *                                     the max initial load factor in not in (0, 1].
+     */
+    public IntDictionaryImpl(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor) throws IllegalArgumentException {
+        super(initCapacity, initMinLoadFactor, initMaxLoadFactor);
+    }
+
+    @Override
+    protected Integer box(long key) {
+        return (int) key;
+    }
+
+    @Override
+    protected boolean isKey(Object key) {
+        return key instanceof Integer;
+    }
+
+    @Override
+    protected long unbox(Object key) {
+        return (Integer) key;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsIntKey(int key) {
+        return containsPrimitiveKey(key);
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V getInt(int key) {
+        return getPrimitive(key);
+    }
+
+    /**
+     * Puts the mapping in this dictionary.
+     * @param key -- the key of the mapping.
+     * @param value -- the value of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified value is null.
+     */
+    @Override
+    public V putInt(int key, @NotNull V value) throws IllegalArgumentException {
+        return putPrimitive(key, value);
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V removeInt(int key) {
+        return removePrimitive(key);
+    }
+}
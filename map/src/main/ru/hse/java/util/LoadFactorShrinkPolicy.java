@@ -0,0 +1,26 @@
+package ru.hse.java.util;
+
+/**
+ * The policy created by {@link ShrinkPolicy#toLoadFactor(double)},
+ * it keeps the target load factor so a snapshot of the dictionary can record it.
+ */
+final class LoadFactorShrinkPolicy implements ShrinkPolicy {
+    private final double targetLoadFactor;
+
+    LoadFactorShrinkPolicy(double targetLoadFactor) {
+        this.targetLoadFactor = targetLoadFactor;
+    }
+
+    double targetLoadFactor() {
+        return targetLoadFactor;
+    }
+
+    @Override
+    public int shrink(int size, int capacity, double minLoadFactor, double maxLoadFactor) {
+        if (size > minLoadFactor * capacity) {
+            return capacity;
+        }
+        int result = (int) Math.min(capacity, Math.ceil(size / targetLoadFactor));
+        return size < maxLoadFactor * result ? result : capacity;
+    }
+}
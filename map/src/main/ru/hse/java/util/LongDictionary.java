@@ -0,0 +1,27 @@
+package ru.hse.java.util;
+
+/*
+ * Хеш-таблица с ключами типа long
+ * Методы с примитивным ключом не упаковывают ключ в Long,
+ *   сам словарь при этом остаётся обычным Dictionary<Long, V>
+ */
+public interface LongDictionary<V> extends Dictionary<Long, V> {
+    // true, если такой ключ содержится в таблице, иначе false
+    boolean containsLongKey(long key);
+
+    // Возвращает значение, хранимое по ключу key. Если такого нет, возвращает null
+    V getLong(long key);
+
+    /*
+     * Положить по ключу key значение value и вернуть ранее хранимое, либо null
+     * Провести рехеширование по необходимости
+     */
+    V putLong(long key, V value);
+
+    /*
+     * Забыть про пару key-value для переданного key
+     * и вернуть забытое value, либо null, если такой пары не было;
+     * провести рехеширование по необходимости
+     */
+    V removeLong(long key);
+}
@@ -0,0 +1,32 @@
+package ru.hse.java.util;
+
+import ru.hse.java.util.CacheDictionary.Node;
+
+/**
+ * Evicts the least recently used mapping.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+class LruPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final NodeQueue<K, V> queue = new NodeQueue<>();
+
+    @Override
+    public void onInsert(Node<K, V> node) {
+        queue.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        queue.moveToLast(node);
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        queue.remove(node);
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        return queue.first();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.hse.java.util;
+
+import ru.hse.java.util.CacheDictionary.Node;
+
+/**
+ * Intrusive doubly linked queue of cache nodes, the links are stored in the nodes themselves,
+ * so all the operations are O(1) and do not allocate.
+ * A node belongs to at most one queue at a time.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+class NodeQueue<K, V> {
+    private Node<K, V> first = null;
+    private Node<K, V> last = null;
+    private long weight = 0;
+
+    /**
+     * @return the least recently added node, or null if the queue is empty.
+     */
+    Node<K, V> first() {
+        return first;
+    }
+
+    /**
+     * @return the total weight of the nodes in the queue.
+     */
+    long weight() {
+        return weight;
+    }
+
+    void addLast(Node<K, V> node) {
+        node.previous = last;
+        node.next = null;
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+        weight += node.getWeight();
+    }
+
+    void remove(Node<K, V> node) {
+        if (node.previous == null) {
+            first = node.next;
+        } else {
+            node.previous.next = node.next;
+        }
+        if (node.next == null) {
+            last = node.previous;
+        } else {
+            node.next.previous = node.previous;
+        }
+        node.previous = null;
+        node.next = null;
+        weight -= node.getWeight();
+    }
+
+    void moveToLast(Node<K, V> node) {
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * The data struct for storage of mappings outside of the heap.
+ * The key can not be null. The value can not be null.
+ * Keys and values are converted to bytes by {@link Codec}s and appended as records to direct byte buffers (arenas),
+ * the heap keeps only an open-addressing index of the record addresses and the hashes of the keys,
+ * collisions in the index are resolved by Robin Hood linear probing.
+ * Keys are hashed and compared by their bytes in place, so a lookup decodes nothing
+ * but the value it returns, and the views decode only the keys or the values they return.
+ * A record of an overwritten or removed mapping stays in its arena until the dead records outweigh
+ * the live ones, then the live records are copied to new arenas and the old ones are left to the garbage collector.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class OffHeapDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int DEFAULT_ARENA_SIZE = 1 << 20;
+    private static final int MIN_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final double MIN_LOAD_FACTOR = 0.25;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    // a record: the key length, the value length, the key and the value
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final long FREE = 0;
+
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final int arenaSize;
+    private ArrayList<ByteBuffer> arenas = new ArrayList<>();
+    private long liveBytes = 0;
+    private long deadBytes = 0;
+    /*
+     * addresses[i] is the address of the record in the slot i plus one, FREE if the slot is free,
+     * the address is the index of the arena in the high half and the offset in the low half
+     */
+    private long[] addresses;
+    private int[] hashes;
+    private int mask;
+    private int size = 0;
+    private int modCount = 0;
+
+    /**
+     * The entry decoding its value only when it is asked for.
+     */
+    private class DictionaryEntry implements Entry<K, V> {
+        private final K key;
+        private final long address;
+        private final int expectedModCount;
+        private V value = null;
+
+        public DictionaryEntry(K key, long address) {
+            this.key = key;
+            this.address = address;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            if (value == null) {
+                value = modCount == expectedModCount ? decodeValue(address) : get(key);
+            }
+            return value;
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            V result = getValue();
+            if (containsKey(key)) {
+                put(key, value);
+            }
+            this.value = value;
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Entry)) {
+                return false;
+            }
+            Entry<?, ?> entry = (Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && getValue().equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ getValue().hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int expectedModCount = modCount;
+        /*
+         * Removal keeps the order of the slots but may shift a visited mapping from the beginning
+         * of the index to its end, so the iterator stops after it has returned as many mappings as the dictionary had
+         */
+        private int remaining = size;
+        private int nextIndex = skipFree(0);
+        private int lastIndex = -1;
+
+        private int skipFree(int index) {
+            while (index < addresses.length && addresses[index] == FREE) {
+                index++;
+            }
+            return index;
+        }
+
+        protected abstract T extract(long address);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            lastIndex = nextIndex;
+            nextIndex = skipFree(nextIndex + 1);
+            return extract(addresses[lastIndex] - 1);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            deleteAt(lastIndex);
+            // the following mappings are shifted back by one slot, the iteration goes on from the removed one
+            if (addresses[lastIndex] != FREE) {
+                nextIndex = lastIndex;
+            }
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(long address) {
+                    return new DictionaryEntry(decodeKey(address), address);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(long address) {
+                    return decodeKey(address);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(long address) {
+                    return decodeValue(address);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with arenas of the default size (1 MiB).
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @throws IllegalArgumentException -- if a codec is null.
+     */
+    public OffHeapDictionary(@NotNull Codec<K> keyCodec, @NotNull Codec<V> valueCodec) throws IllegalArgumentException {
+        this(keyCodec, valueCodec, DEFAULT_ARENA_SIZE);
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @param arenaSize -- the size of an arena in bytes, a larger record gets an arena of its own.
+     * @throws IllegalArgumentException -- if a codec is null or the arena size is not positive.
+     */
+    public OffHeapDictionary(@NotNull Codec<K> keyCodec, @NotNull Codec<V> valueCodec,
+                             int arenaSize) throws IllegalArgumentException {
+        if (keyCodec == null || valueCodec == null) {
+            throw new IllegalArgumentException("the codec is null");
+        }
+        if (arenaSize <= 0) {
+            throw new IllegalArgumentException("the arena size is not positive: " + arenaSize);
+        }
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.arenaSize = arenaSize;
+        resize(MIN_CAPACITY);
+    }
+
+    private ByteBuffer arenaOf(long address) {
+        return arenas.get((int) (address >>> 32));
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    private static int recordSize(ByteBuffer arena, int offset) {
+        return RECORD_HEADER_SIZE + arena.getInt(offset) + arena.getInt(offset + Integer.BYTES);
+    }
+
+    private K decodeKey(long address) {
+        ByteBuffer arena = arenaOf(address);
+        int offset = offsetOf(address);
+        int start = offset + RECORD_HEADER_SIZE;
+        return keyCodec.decode(arena.duplicate().limit(start + arena.getInt(offset)).position(start));
+    }
+
+    private V decodeValue(long address) {
+        ByteBuffer arena = arenaOf(address);
+        int offset = offsetOf(address);
+        int start = offset + RECORD_HEADER_SIZE + arena.getInt(offset);
+        return valueCodec.decode(arena.duplicate().limit(start + arena.getInt(offset + Integer.BYTES)).position(start));
+    }
+
+    /**
+     * Appends the record to the last arena, or to a new one if the record does not fit.
+     * @return the address of the record.
+     */
+    private long append(byte[] key, byte[] value) {
+        int recordSize = RECORD_HEADER_SIZE + key.length + value.length;
+        ByteBuffer arena = arenas.isEmpty() ? null : arenas.get(arenas.size() - 1);
+        if (arena == null || arena.remaining() < recordSize) {
+            arena = ByteBuffer.allocateDirect(Math.max(arenaSize, recordSize));
+            arenas.add(arena);
+        }
+        long address = ((long) (arenas.size() - 1) << 32) | arena.position();
+        arena.putInt(key.length).putInt(value.length).put(key).put(value);
+        liveBytes += recordSize;
+        return address;
+    }
+
+    /**
+     * Copies the live records to new arenas.
+     */
+    private void compact() {
+        ArrayList<ByteBuffer> oldArenas = arenas;
+        arenas = new ArrayList<>();
+        liveBytes = 0;
+        deadBytes = 0;
+        for (int i = 0; i < addresses.length; i++) {
+            if (addresses[i] != FREE) {
+                long address = addresses[i] - 1;
+                ByteBuffer arena = oldArenas.get((int) (address >>> 32));
+                int offset = offsetOf(address);
+                int recordSize = recordSize(arena, offset);
+                ByteBuffer target = arenas.isEmpty() ? null : arenas.get(arenas.size() - 1);
+                if (target == null || target.remaining() < recordSize) {
+                    target = ByteBuffer.allocateDirect(Math.max(arenaSize, recordSize));
+                    arenas.add(target);
+                }
+                addresses[i] = (((long) (arenas.size() - 1) << 32) | target.position()) + 1;
+                target.put(arena.duplicate().limit(offset + recordSize).position(offset));
+                liveBytes += recordSize;
+            }
+        }
+        modCount++;
+    }
+
+    private void release(long address) {
+        int recordSize = recordSize(arenaOf(address), offsetOf(address));
+        liveBytes -= recordSize;
+        deadBytes += recordSize;
+        if (deadBytes > liveBytes && deadBytes > arenaSize) {
+            compact();
+        }
+    }
+
+    private void resize(int capacity) {
+        long[] oldAddresses = addresses;
+        int[] oldHashes = hashes;
+        addresses = new long[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        if (oldAddresses != null) {
+            for (int i = 0; i < oldAddresses.length; i++) {
+                if (oldAddresses[i] != FREE) {
+                    insert(oldAddresses[i], oldHashes[i]);
+                }
+            }
+        }
+        modCount++;
+    }
+
+    private void rehash() {
+        int capacity = addresses.length;
+        if (MAX_LOAD_FACTOR * capacity <= size && capacity < MAXIMUM_CAPACITY) {
+            resize(2 * capacity);
+        } else if (size <= MIN_LOAD_FACTOR * capacity && capacity > MIN_CAPACITY) {
+            resize(capacity / 2);
+        }
+    }
+
+    private static int hash(byte[] key) {
+        return HashSpreader.mix(Arrays.hashCode(key));
+    }
+
+    private boolean keyEquals(long address, byte[] key) {
+        ByteBuffer arena = arenaOf(address);
+        int offset = offsetOf(address);
+        if (arena.getInt(offset) != key.length) {
+            return false;
+        }
+        offset += RECORD_HEADER_SIZE;
+        for (int i = 0; i < key.length; i++) {
+            if (arena.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int probeLength(int index) {
+        return (index - hashes[index]) & mask;
+    }
+
+    /**
+     * @return the index of the slot of the key, or -1 if the key is not found.
+     */
+    private int findSlot(byte[] key, int hash) {
+        int i = hash & mask;
+        // a mapping is never further from its home slot than the mappings after it in the cluster
+        for (int length = 0; addresses[i] != FREE && length <= probeLength(i); length++) {
+            if (hashes[i] == hash && keyEquals(addresses[i] - 1, key)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Puts the record in the slot where the probing meets a mapping closer to its home slot,
+     * and moves that mapping on in the same way.
+     */
+    private void insert(long address, int hash) {
+        int i = hash & mask;
+        for (int length = 0; addresses[i] != FREE; length++) {
+            int storedLength = probeLength(i);
+            if (storedLength < length) {
+                long storedAddress = addresses[i];
+                int storedHash = hashes[i];
+                addresses[i] = address;
+                hashes[i] = hash;
+                address = storedAddress;
+                hash = storedHash;
+                length = storedLength;
+            }
+            i = (i + 1) & mask;
+        }
+        addresses[i] = address;
+        hashes[i] = hash;
+    }
+
+    /**
+     * @return the index of the slot of the key, or -1 if the key is not found, has another type or can not be encoded.
+     */
+    @SuppressWarnings("unchecked")
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        byte[] keyBytes;
+        try {
+            keyBytes = keyCodec.encode((K) key);
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return -1;
+        }
+        return findSlot(keyBytes, hash(keyBytes));
+    }
+
+    /**
+     * Frees the slot and shifts the following slots of the cluster back by one, so the index has no tombstones
+     * and the order of the mappings in the index does not change.
+     */
+    private void deleteAt(int index) {
+        release(addresses[index] - 1);
+        int hole = index;
+        for (int i = (index + 1) & mask; addresses[i] != FREE && probeLength(i) > 0; i = (i + 1) & mask) {
+            addresses[hole] = addresses[i];
+            hashes[hole] = hashes[i];
+            hole = i;
+        }
+        addresses[hole] = FREE;
+        size--;
+        modCount++;
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void checkKey(Object key) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        int index = find(key);
+        return index < 0 ? null : decodeValue(addresses[index] - 1);
+    }
+
+    /**
+     * Puts the mapping in this dictionary, a value of the same length is overwritten in place.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key or value is null or can not be encoded.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        byte[] keyBytes = keyCodec.encode(key);
+        byte[] valueBytes = valueCodec.encode(value);
+        int hash = hash(keyBytes);
+        int index = findSlot(keyBytes, hash);
+        if (index < 0) {
+            insert(append(keyBytes, valueBytes) + 1, hash);
+            size++;
+            modCount++;
+            rehash();
+            return null;
+        }
+        long address = addresses[index] - 1;
+        V result = decodeValue(address);
+        ByteBuffer arena = arenaOf(address);
+        int offset = offsetOf(address);
+        if (arena.getInt(offset + Integer.BYTES) == valueBytes.length) {
+            arena.duplicate().position(offset + RECORD_HEADER_SIZE + keyBytes.length).put(valueBytes);
+        } else {
+            addresses[index] = append(keyBytes, valueBytes) + 1;
+            release(address);
+        }
+        return result;
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        int index = find(key);
+        if (index < 0) {
+            return null;
+        }
+        V result = decodeValue(addresses[index] - 1);
+        deleteAt(index);
+        rehash();
+        return result;
+    }
+
+    /**
+     * Removes all of the mappings and drops the arenas.
+     */
+    @Override
+    public void clear() {
+        arenas = new ArrayList<>();
+        liveBytes = 0;
+        deadBytes = 0;
+        size = 0;
+        addresses = null;
+        resize(MIN_CAPACITY);
+    }
+
+    /**
+     * @return the number of bytes of the arenas, including the dead records and the unused tails.
+     */
+    public long offHeapBytes() {
+        long result = 0;
+        for (ByteBuffer arena : arenas) {
+            result += arena.capacity();
+        }
+        return result;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
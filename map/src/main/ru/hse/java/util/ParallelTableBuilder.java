@@ -0,0 +1,312 @@
+package ru.hse.java.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Fills the slots of a Robin Hood table with mappings on a fork/join pool, see {@link DictionaryImpl#parallelCopyOf}.
+ * The mappings are collected from the splits of the source and hashed in parallel.
+ * Then they are sorted by the region of the table containing their home slots, every region is sorted
+ * by the home slots and filled by its own task: in the order of the home slots a mapping takes the slot
+ * after the previous one or its home slot, which is exactly the Robin Hood layout.
+ * The mappings which do not fit before the end of their region are spilled, and the caller inserts them one by one.
+ */
+class ParallelTableBuilder {
+    private static final int LEAF_SIZE = 1 << 13;
+    private static final int MIN_REGION_SIZE = 1 << 12;
+    private static final int REGIONS_PER_THREAD = 8;
+
+    private final ForkJoinPool pool;
+    private final HashSpreader spreader;
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+    private int[] spills;
+    private int spillCount;
+
+    /**
+     * The mappings of a split of the source in the encounter order.
+     */
+    private static class Chunk {
+        private Object[] keys = new Object[16];
+        private Object[] values = new Object[16];
+        private int[] hashes = new int[16];
+        private int count = 0;
+
+        void add(Object key, Object value, int hash) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * count);
+                values = Arrays.copyOf(values, 2 * count);
+                hashes = Arrays.copyOf(hashes, 2 * count);
+            }
+            keys[count] = key;
+            values[count] = value;
+            hashes[count] = hash;
+            count++;
+        }
+    }
+
+    private class CollectTask extends RecursiveTask<ArrayList<Chunk>> {
+        private final Spliterator<? extends Entry<?, ?>> entries;
+
+        CollectTask(Spliterator<? extends Entry<?, ?>> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        protected ArrayList<Chunk> compute() {
+            Spliterator<? extends Entry<?, ?>> prefix;
+            if (entries.estimateSize() > LEAF_SIZE && (prefix = entries.trySplit()) != null) {
+                CollectTask left = new CollectTask(prefix);
+                left.fork();
+                ArrayList<Chunk> right = new CollectTask(entries).compute();
+                ArrayList<Chunk> result = left.join();
+                result.addAll(right);
+                return result;
+            }
+            Chunk chunk = new Chunk();
+            entries.forEachRemaining(entry -> {
+                if (entry == null) {
+                    throw new IllegalArgumentException("the entry is null");
+                }
+                Object key = entry.getKey();
+                Object value = entry.getValue();
+                if (key == null) {
+                    throw new IllegalArgumentException("the key is null");
+                }
+                if (value == null) {
+                    throw new IllegalArgumentException("the value is null");
+                }
+                chunk.add(key, value, spreader.spread(key.hashCode()));
+            });
+            ArrayList<Chunk> result = new ArrayList<>();
+            result.add(chunk);
+            return result;
+        }
+    }
+
+    /**
+     * Runs the action for every index of the range, the subranges are run in parallel.
+     */
+    private static class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer action;
+
+        RangeTask(int from, int to, IntConsumer action) {
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, action), new RangeTask(middle, to, action));
+        }
+    }
+
+    ParallelTableBuilder(ForkJoinPool pool, HashSpreader spreader) {
+        this.pool = pool;
+        this.spreader = spreader;
+    }
+
+    private void forEachIndex(int count, IntConsumer action) {
+        if (count > 0) {
+            pool.invoke(new RangeTask(0, count, action));
+        }
+    }
+
+    /**
+     * Collects and hashes the mappings, they are sorted into the regions by {@link #place}.
+     * @return the number of the collected mappings including the ones with repeated keys.
+     * @throws IllegalArgumentException -- if an entry, a key or a value is null.
+     */
+    int collect(Spliterator<? extends Entry<?, ?>> entries) throws IllegalArgumentException {
+        Chunk[] chunks = pool.invoke(new CollectTask(entries)).toArray(new Chunk[0]);
+        long total = 0;
+        for (Chunk chunk : chunks) {
+            total += chunk.count;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many entries: " + total);
+        }
+        size = (int) total;
+        keys = new Object[size];
+        values = new Object[size];
+        hashes = new int[size];
+        int start = 0;
+        int[] starts = new int[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            starts[i] = start;
+            start += chunks[i].count;
+        }
+        forEachIndex(chunks.length, i -> {
+            System.arraycopy(chunks[i].keys, 0, keys, starts[i], chunks[i].count);
+            System.arraycopy(chunks[i].values, 0, values, starts[i], chunks[i].count);
+            System.arraycopy(chunks[i].hashes, 0, hashes, starts[i], chunks[i].count);
+        });
+        return size;
+    }
+
+    /**
+     * Fills the slots of the table with the collected mappings, the later mapping of a repeated key replaces
+     * the value of the earlier one. The arrays are the ones of the table, all the slots must be free.
+     * @return the number of the filled slots.
+     */
+    int place(Object[] tableKeys, Object[] tableValues, int[] probeLengths, int[] tableHashes) {
+        int capacity = probeLengths.length;
+        int mask = capacity - 1;
+        int regionCount = Math.max(1, Math.min(capacity / MIN_REGION_SIZE,
+                Integer.highestOneBit(pool.getParallelism() * REGIONS_PER_THREAD)));
+        int regionSize = capacity / regionCount;
+        int regionShift = Integer.numberOfTrailingZeros(regionSize);
+
+        // the stable counting sort by the regions, every part of the mappings is counted and moved by its own task
+        int parts = Math.max(1, Math.min(pool.getParallelism() * REGIONS_PER_THREAD, size / LEAF_SIZE));
+        int[][] counts = new int[parts][regionCount + 1];
+        forEachIndex(parts, part -> {
+            for (int i = partStart(part, parts); i < partStart(part + 1, parts); i++) {
+                counts[part][((hashes[i] & mask) >>> regionShift) + 1]++;
+            }
+        });
+        int[] regionStarts = new int[regionCount + 1];
+        for (int region = 0; region < regionCount; region++) {
+            int offset = regionStarts[region];
+            for (int part = 0; part < parts; part++) {
+                int count = counts[part][region + 1];
+                counts[part][region] = offset;
+                offset += count;
+            }
+            regionStarts[region + 1] = offset;
+        }
+        Object[] sortedKeys = new Object[size];
+        Object[] sortedValues = new Object[size];
+        int[] sortedHashes = new int[size];
+        forEachIndex(parts, part -> {
+            int[] next = counts[part];
+            for (int i = partStart(part, parts); i < partStart(part + 1, parts); i++) {
+                int target = next[(hashes[i] & mask) >>> regionShift]++;
+                sortedKeys[target] = keys[i];
+                sortedValues[target] = values[i];
+                sortedHashes[target] = hashes[i];
+            }
+        });
+        keys = sortedKeys;
+        values = sortedValues;
+        hashes = sortedHashes;
+
+        int[] filled = new int[regionCount];
+        int[][] regionSpills = new int[regionCount][];
+        int[] regionSpillCounts = new int[regionCount];
+        forEachIndex(regionCount, region -> {
+            int from = regionStarts[region];
+            int to = regionStarts[region + 1];
+            int base = region * regionSize;
+            int end = base + regionSize;
+            // the stable counting sort by the home slots inside the region
+            int[] homeStarts = new int[regionSize + 1];
+            for (int i = from; i < to; i++) {
+                homeStarts[(hashes[i] & mask) - base + 1]++;
+            }
+            for (int i = 0; i < regionSize; i++) {
+                homeStarts[i + 1] += homeStarts[i];
+            }
+            int[] order = new int[to - from];
+            for (int i = from; i < to; i++) {
+                order[homeStarts[(hashes[i] & mask) - base]++] = i;
+            }
+            int[] spilled = new int[4];
+            int spilledCount = 0;
+            int count = 0;
+            int last = base - 1;
+            int groupHome = -1;
+            int groupStart = end;
+            for (int i : order) {
+                int hash = hashes[i];
+                int home = hash & mask;
+                if (home != groupHome) {
+                    groupHome = home;
+                    groupStart = Math.max(home, last + 1);
+                }
+                boolean isRepeated = false;
+                for (int slot = groupStart; slot <= last && !isRepeated; slot++) {
+                    if (tableHashes[slot] == hash && tableKeys[slot].equals(keys[i])) {
+                        tableValues[slot] = values[i];
+                        isRepeated = true;
+                    }
+                }
+                if (isRepeated) {
+                    continue;
+                }
+                int slot = Math.max(home, last + 1);
+                if (slot >= end) {
+                    if (spilledCount == spilled.length) {
+                        spilled = Arrays.copyOf(spilled, 2 * spilledCount);
+                    }
+                    spilled[spilledCount++] = i;
+                    continue;
+                }
+                tableKeys[slot] = keys[i];
+                tableValues[slot] = values[i];
+                tableHashes[slot] = hash;
+                probeLengths[slot] = slot - home + 1;
+                last = slot;
+                count++;
+            }
+            filled[region] = count;
+            regionSpills[region] = spilled;
+            regionSpillCounts[region] = spilledCount;
+        });
+        spillCount = 0;
+        for (int count : regionSpillCounts) {
+            spillCount += count;
+        }
+        spills = new int[spillCount];
+        int spillIndex = 0;
+        for (int region = 0; region < regionCount; region++) {
+            System.arraycopy(regionSpills[region], 0, spills, spillIndex, regionSpillCounts[region]);
+            spillIndex += regionSpillCounts[region];
+        }
+        int result = 0;
+        for (int count : filled) {
+            result += count;
+        }
+        return result;
+    }
+
+    private int partStart(int part, int parts) {
+        return (int) ((long) size * part / parts);
+    }
+
+    /**
+     * @return the number of the mappings which did not fit into their regions,
+     *         the mappings of a repeated key are spilled in the order of the source.
+     */
+    int spillCount() {
+        return spillCount;
+    }
+
+    Object spilledKey(int index) {
+        return keys[spills[index]];
+    }
+
+    Object spilledValue(int index) {
+        return values[spills[index]];
+    }
+
+    int spilledHash(int index) {
+        return hashes[spills[index]];
+    }
+}
@@ -0,0 +1,700 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The dictionary stored in a directory, it survives the restarts of the process.
+ * The key can not be null. The value can not be null.
+ * Keys and values are converted to bytes by {@link Codec}s, the keys are compared and hashed by their bytes.
+ * Every mutation is appended to the log file as a record with a checksum,
+ * the hash table of the log offsets of the live records is kept in a memory-mapped index file,
+ * so opening an existing dictionary does not read the mappings.
+ * The index header remembers the length of the log reflected in the index, the records after it
+ * are replayed on open, and a torn record at the end of the log is cut off,
+ * so the dictionary recovers after the process is killed at any point.
+ * The data written before {@link #flush()} also survives a power loss.
+ * The log is never compacted, the overwritten and removed records keep their space.
+ * Values are decoded on every read, nothing is cached in the heap.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class PersistentDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, Closeable {
+    private static final String LOG_NAME = "dictionary.log";
+    private static final String INDEX_NAME = "dictionary.index";
+    private static final String TEMPORARY_INDEX_NAME = "dictionary.index.tmp";
+
+    private static final long LOG_MAGIC = 0x4853_4544_4c4f_4701L;
+    private static final long INDEX_MAGIC = 0x4853_4544_4944_5801L;
+    private static final int LOG_HEADER_SIZE = Long.BYTES;
+
+    /*
+     * The index header: the magic, the indexed log length, the size and the number of deleted slots.
+     * A slot: the log offset of the record plus one (FREE or DELETED otherwise) and the hash of the key.
+     */
+    private static final int INDEXED_LENGTH_POSITION = Long.BYTES;
+    private static final int SIZE_POSITION = 2 * Long.BYTES;
+    private static final int DELETED_POSITION = SIZE_POSITION + Integer.BYTES;
+    private static final int INDEX_HEADER_SIZE = 4 * Long.BYTES;
+    private static final int SLOT_SIZE = 2 * Long.BYTES;
+    private static final long FREE = 0;
+    private static final long DELETED = -1;
+
+    // a record: the key length, the value length (-1 for a removal), the key, the value and the checksum
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final int REMOVAL = -1;
+
+    private static final int MIN_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 26;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final Path directory;
+    private final Codec<K> keyCodec;
+    private final Codec<V> valueCodec;
+    private final FileChannel log;
+    private long logLength;
+    private MappedByteBuffer index;
+    private int mask;
+    private int size;
+    private int deleted;
+    private int modCount = 0;
+    private ByteBuffer buffer = ByteBuffer.allocate(64);
+    private final CRC32 checksum = new CRC32();
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return super.setValue(value);
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int expectedModCount = modCount;
+        private int nextIndex = skipFree(0);
+        private int lastIndex = -1;
+
+        private int skipFree(int index) {
+            while (index <= mask && entryAt(index) <= FREE) {
+                index++;
+            }
+            return index;
+        }
+
+        protected abstract T extract(long offset);
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex <= mask;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = skipFree(nextIndex + 1);
+            return extract(entryAt(lastIndex) - 1);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            ByteBuffer key = readKey(entryAt(lastIndex) - 1);
+            byte[] keyBytes = new byte[key.remaining()];
+            key.get(keyBytes);
+            append(keyBytes, null);
+            deleteAt(lastIndex);
+            commit();
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(long offset) {
+                    K key = keyCodec.decode(readKey(offset));
+                    return new DictionaryEntry(key, valueCodec.decode(readValue(offset)));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(long offset) {
+                    return keyCodec.decode(readKey(offset));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(long offset) {
+                    return valueCodec.decode(readValue(offset));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Opens the dictionary stored in the specified directory, or creates an empty one there.
+     * @param directory -- the directory of the log and the index files, it is created if it does not exist.
+     * @param keyCodec -- the codec of the keys.
+     * @param valueCodec -- the codec of the values.
+     * @throws IllegalArgumentException -- if the directory or a codec is null.
+     * @throws IOException -- if the files can not be read or written or the log is not a dictionary log.
+     */
+    public PersistentDictionary(@NotNull Path directory, @NotNull Codec<K> keyCodec,
+                                @NotNull Codec<V> valueCodec) throws IllegalArgumentException, IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("the directory is null");
+        }
+        if (keyCodec == null || valueCodec == null) {
+            throw new IllegalArgumentException("the codec is null");
+        }
+        this.directory = directory;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(TEMPORARY_INDEX_NAME));
+        log = FileChannel.open(directory.resolve(LOG_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    private void open() throws IOException {
+        logLength = log.size();
+        if (logLength < LOG_HEADER_SIZE) {
+            log.truncate(0);
+            writeFully(ByteBuffer.allocate(LOG_HEADER_SIZE).putLong(0, LOG_MAGIC), 0);
+            logLength = LOG_HEADER_SIZE;
+        } else if (read(0, LOG_HEADER_SIZE).getLong() != LOG_MAGIC) {
+            throw new IOException("not a dictionary log: " + directory.resolve(LOG_NAME));
+        }
+        Path indexPath = directory.resolve(INDEX_NAME);
+        if (Files.exists(indexPath)) {
+            index = map(indexPath);
+        }
+        if (index == null || index.getLong(0) != INDEX_MAGIC || index.getLong(INDEXED_LENGTH_POSITION) > logLength
+                || Integer.bitCount((index.capacity() - INDEX_HEADER_SIZE) / SLOT_SIZE) != 1) {
+            // the index is missing, damaged or newer than the log, it is rebuilt from the whole log
+            index = createIndex(indexPath, MIN_CAPACITY, LOG_HEADER_SIZE);
+        }
+        mask = (index.capacity() - INDEX_HEADER_SIZE) / SLOT_SIZE - 1;
+        size = index.getInt(SIZE_POSITION);
+        deleted = index.getInt(DELETED_POSITION);
+        long indexedLength = index.getLong(INDEXED_LENGTH_POSITION);
+        if (indexedLength < logLength) {
+            recover(indexedLength);
+        }
+    }
+
+    /**
+     * Replays the records after the indexed part of the log and cuts off a torn record at its end.
+     * The records may be already applied to the index partially, replaying them again is harmless,
+     * but the counters in the header can not be trusted, so they are recounted.
+     */
+    private void recover(long position) throws IOException {
+        size = 0;
+        deleted = 0;
+        for (int i = 0; i <= mask; i++) {
+            long entry = entryAt(i);
+            if (entry == DELETED) {
+                deleted++;
+            } else if (entry != FREE) {
+                size++;
+            }
+        }
+        while (position + RECORD_HEADER_SIZE <= logLength) {
+            ByteBuffer header = read(position, RECORD_HEADER_SIZE);
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            long length = (long) RECORD_HEADER_SIZE + keyLength + Math.max(valueLength, 0) + Integer.BYTES;
+            if (keyLength < 0 || valueLength < REMOVAL || length > Integer.MAX_VALUE || position + length > logLength) {
+                break;
+            }
+            ByteBuffer record = read(position, (int) length);
+            checksum.reset();
+            checksum.update(record.limit((int) length - Integer.BYTES));
+            if ((int) checksum.getValue() != record.limit((int) length).getInt((int) length - Integer.BYTES)) {
+                break;
+            }
+            byte[] key = new byte[keyLength];
+            record.position(RECORD_HEADER_SIZE);
+            record.get(key);
+            int hash = hash(key);
+            int slot = findSlot(key, hash);
+            if (valueLength == REMOVAL) {
+                if (slot >= 0) {
+                    deleteAt(slot);
+                }
+            } else {
+                setAt(slot, hash, position);
+            }
+            position += length;
+        }
+        if (position < logLength) {
+            log.truncate(position);
+            logLength = position;
+        }
+        commit();
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < INDEX_HEADER_SIZE + SLOT_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+    }
+
+    /**
+     * Writes an empty index to a temporary file and atomically replaces the specified file with it.
+     */
+    private MappedByteBuffer createIndex(Path path, int capacity, long indexedLength) throws IOException {
+        MappedByteBuffer result = createTemporaryIndex(capacity, indexedLength);
+        publish(result, path);
+        return result;
+    }
+
+    private MappedByteBuffer createTemporaryIndex(int capacity, long indexedLength) throws IOException {
+        Path path = directory.resolve(TEMPORARY_INDEX_NAME);
+        MappedByteBuffer result;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            result = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        }
+        result.putLong(0, INDEX_MAGIC);
+        result.putLong(INDEXED_LENGTH_POSITION, indexedLength);
+        return result;
+    }
+
+    private void publish(MappedByteBuffer newIndex, Path path) throws IOException {
+        newIndex.force();
+        Files.move(directory.resolve(TEMPORARY_INDEX_NAME), path,
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Moves the live slots to a new index file without the deleted slots.
+     */
+    private void resize(int capacity) throws IOException {
+        MappedByteBuffer newIndex = createTemporaryIndex(capacity, index.getLong(INDEXED_LENGTH_POSITION));
+        int newMask = capacity - 1;
+        for (int i = 0; i <= mask; i++) {
+            long entry = entryAt(i);
+            if (entry > FREE) {
+                int hash = hashAt(i);
+                int j = hash & newMask;
+                while (newIndex.getLong(slotPosition(j)) != FREE) {
+                    j = (j + 1) & newMask;
+                }
+                newIndex.putInt(slotPosition(j) + Long.BYTES, hash);
+                newIndex.putLong(slotPosition(j), entry);
+            }
+        }
+        newIndex.putInt(SIZE_POSITION, size);
+        publish(newIndex, directory.resolve(INDEX_NAME));
+        index = newIndex;
+        mask = newMask;
+        deleted = 0;
+        modCount++;
+    }
+
+    private static int slotPosition(int index) {
+        return INDEX_HEADER_SIZE + index * SLOT_SIZE;
+    }
+
+    private long entryAt(int slot) {
+        return index.getLong(slotPosition(slot));
+    }
+
+    private int hashAt(int slot) {
+        return index.getInt(slotPosition(slot) + Long.BYTES);
+    }
+
+    private static int hash(byte[] key) {
+        return HashSpreader.mix(Arrays.hashCode(key));
+    }
+
+    /**
+     * @return the index of the slot of the key if it is found,
+     *         otherwise -(the index of the slot where the key should be inserted) - 1.
+     */
+    private int findSlot(byte[] key, int hash) throws IOException {
+        int firstDeleted = -1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long entry = entryAt(i);
+            if (entry == FREE) {
+                return -(firstDeleted >= 0 ? firstDeleted : i) - 1;
+            }
+            if (entry == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = i;
+                }
+            } else if (hashAt(i) == hash && ByteBuffer.wrap(key).equals(readKey(entry - 1))) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Points the slot found by {@link #findSlot(byte[], int)} to the record at the specified offset.
+     */
+    private void setAt(int slot, int hash, long offset) throws IOException {
+        if (slot >= 0) {
+            index.putLong(slotPosition(slot), offset + 1);
+            return;
+        }
+        slot = -slot - 1;
+        if (entryAt(slot) == DELETED) {
+            deleted--;
+        }
+        index.putInt(slotPosition(slot) + Long.BYTES, hash);
+        index.putLong(slotPosition(slot), offset + 1);
+        size++;
+        modCount++;
+        if (size + deleted > MAX_LOAD_FACTOR * (mask + 1)) {
+            int capacity = mask + 1;
+            if (size >= MAX_LOAD_FACTOR * capacity / 2 && capacity < MAXIMUM_CAPACITY) {
+                capacity *= 2;
+            }
+            resize(capacity);
+        }
+    }
+
+    private void deleteAt(int slot) {
+        index.putLong(slotPosition(slot), DELETED);
+        size--;
+        deleted++;
+        modCount++;
+    }
+
+    /**
+     * Marks the whole log as reflected in the index.
+     */
+    private void commit() {
+        index.putInt(SIZE_POSITION, size);
+        index.putInt(DELETED_POSITION, deleted);
+        index.putLong(INDEXED_LENGTH_POSITION, logLength);
+    }
+
+    /**
+     * Appends a record to the log.
+     * @param value -- the bytes of the value, or null for a removal.
+     * @return the offset of the record.
+     */
+    private long append(byte[] key, byte[] value) {
+        int valueLength = value == null ? REMOVAL : value.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + key.length
+                + Math.max(valueLength, 0) + Integer.BYTES);
+        record.putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) {
+            record.put(value);
+        }
+        checksum.reset();
+        checksum.update(record.array(), 0, record.position());
+        record.putInt((int) checksum.getValue());
+        long offset = logLength;
+        try {
+            writeFully(record.flip(), offset);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        logLength += record.limit();
+        return offset;
+    }
+
+    private void writeFully(ByteBuffer source, long position) throws IOException {
+        while (source.hasRemaining()) {
+            position += log.write(source, position);
+        }
+    }
+
+    /**
+     * @return the buffer with the specified bytes of the log, it is reused by the next read.
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+        }
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of the log");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer readKey(long offset) {
+        try {
+            int keyLength = read(offset, RECORD_HEADER_SIZE).getInt();
+            return read(offset + RECORD_HEADER_SIZE, keyLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer readValue(long offset) {
+        try {
+            ByteBuffer header = read(offset, RECORD_HEADER_SIZE);
+            int keyLength = header.getInt();
+            int valueLength = header.getInt();
+            return read(offset + RECORD_HEADER_SIZE + keyLength, valueLength);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the index of the slot of the key, or -1 if the key is not found, has another type or can not be encoded.
+     */
+    @SuppressWarnings("unchecked")
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        byte[] keyBytes;
+        try {
+            keyBytes = keyCodec.encode((K) key);
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return -1;
+        }
+        try {
+            return Math.max(findSlot(keyBytes, hash(keyBytes)), -1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void checkKey(Object key) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        checkKey(key);
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? null : valueCodec.decode(readValue(entryAt(slot) - 1));
+    }
+
+    /**
+     * Appends the mapping to the log and puts it in the index.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key or value is null or can not be encoded.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        byte[] keyBytes = keyCodec.encode(key);
+        byte[] valueBytes = valueCodec.encode(value);
+        int hash = hash(keyBytes);
+        try {
+            int slot = findSlot(keyBytes, hash);
+            V result = slot < 0 ? null : valueCodec.decode(readValue(entryAt(slot) - 1));
+            setAt(slot, hash, append(keyBytes, valueBytes));
+            commit();
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the removal to the log and deletes the mapping from the index.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        long offset = entryAt(slot) - 1;
+        V result = valueCodec.decode(readValue(offset));
+        ByteBuffer keyBytes = readKey(offset);
+        byte[] copy = new byte[keyBytes.remaining()];
+        keyBytes.get(copy);
+        append(copy, null);
+        deleteAt(slot);
+        commit();
+        return result;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary and truncates the log.
+     */
+    @Override
+    public void clear() {
+        try {
+            // the index becomes newer than the log, so it is rebuilt if the process dies in between
+            log.truncate(LOG_HEADER_SIZE);
+            logLength = LOG_HEADER_SIZE;
+            index = createIndex(directory.resolve(INDEX_NAME), MIN_CAPACITY, LOG_HEADER_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        mask = MIN_CAPACITY - 1;
+        size = 0;
+        deleted = 0;
+        modCount++;
+    }
+
+    /**
+     * Writes the log and the index to the storage device.
+     * @throws IOException -- if the files can not be written.
+     */
+    public void flush() throws IOException {
+        log.force(false);
+        index.force();
+    }
+
+    /**
+     * Flushes and closes the files, the dictionary can not be used after that.
+     * @throws IOException -- if the files can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            log.close();
+        }
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
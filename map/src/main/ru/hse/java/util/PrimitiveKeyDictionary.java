@@ -0,0 +1,387 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The table shared by the dictionaries with primitive keys, the keys are widened to long and kept unboxed.
+ * The probing is done by {@link RobinHoodTable} as in {@link DictionaryImpl}, and the table grows and shrinks
+ * like a {@link DictionaryImpl} with {@link ShrinkPolicy#HALVE}. The keys are spread by {@link HashSpreader#mix(int)},
+ * so the keys with a common stride do not fall into one cluster.
+ * The subclasses box and unbox the keys for the Map methods and views.
+ * @param <K> -- the boxed type of keys.
+ * @param <V> -- the type of values.
+ */
+abstract class PrimitiveKeyDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final double DEFAULT_MIN_LOAD_FACTOR = 0.25;
+    private static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+
+    private final int minCapacity;
+    private final double minLoadFactor;
+    private final double maxLoadFactor;
+    private Table table;
+    private int modCount = 0;
+
+    private static class Table extends RobinHoodTable {
+        private final long[] keys;
+        private final Object[] values;
+
+        Table(int capacity) {
+            super(capacity);
+            keys = new long[capacity];
+            values = new Object[capacity];
+        }
+
+        @Override
+        protected boolean keyEquals(int index, long primitiveKey, Object key) {
+            return keys[index] == primitiveKey;
+        }
+
+        @Override
+        protected void moveSlot(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+        }
+
+        @Override
+        protected void clearSlot(int index) {
+            values[index] = null;
+        }
+
+        int findPosition(long key) {
+            return findPosition(hash(key), key, null);
+        }
+
+        void insert(int stop, int hash, long key, Object value) {
+            insertAt(stop, hash);
+            keys[stop] = key;
+            values[stop] = value;
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+        private final long primitiveKey;
+
+        public DictionaryEntry(long key, V value) {
+            super(box(key), value);
+            primitiveKey = key;
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            int position = table.findPosition(primitiveKey);
+            if (position >= 0) {
+                table.values[position] = value;
+            }
+            return super.setValue(value);
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private final Table current = table;
+        private int expectedModCount = modCount;
+        /*
+         * Removal may shift a visited mapping from the beginning of the table to its end,
+         * so the iterator stops after it has returned as many mappings as the table had
+         */
+        private int remaining = current.size;
+        private int nextIndex = current.skipFree(0);
+        private int lastIndex = -1;
+
+        protected abstract T extract(Table table, int index);
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            remaining--;
+            lastIndex = nextIndex;
+            nextIndex = current.skipFree(nextIndex + 1);
+            return extract(current, lastIndex);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            // the table is not shrunk during the iteration, it is shrunk by the next removal by key
+            current.deleteAt(lastIndex);
+            modCount++;
+            // the following mappings are shifted back by one slot, the iteration goes on from the removed one
+            if (current.probeLengths[lastIndex] != 0) {
+                nextIndex = lastIndex;
+            }
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(Table table, int index) {
+                    return new DictionaryEntry(table.keys[index], valueAt(table, index));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(Table table, int index) {
+                    return box(table.keys[index]);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(Table table, int index) {
+                    return valueAt(table, index);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+    }
+
+    PrimitiveKeyDictionary() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_LOAD_FACTOR, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    PrimitiveKeyDictionary(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor)
+            throws IllegalArgumentException {
+        if (initCapacity < 0) {
+            throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
+        }
+        if (initMinLoadFactor < 0.0 || 0.5 < initMinLoadFactor) {
+            throw new IllegalArgumentException("the initial min load factor is not in [0, 0.5]");
+        }
+        if (initMaxLoadFactor <= 0.0 || 1 < initMaxLoadFactor) {
+            throw new IllegalArgumentException("the initial max load factor is not in (0, 1]");
+        }
+        minCapacity = RobinHoodTable.tableSizeFor(initCapacity);
+        minLoadFactor = initMinLoadFactor;
+        maxLoadFactor = initMaxLoadFactor;
+        table = new Table(minCapacity);
+    }
+
+    /**
+     * @return the boxed key.
+     */
+    protected abstract K box(long key);
+
+    /**
+     * @return true if the object is a boxed key of this dictionary, not null.
+     */
+    protected abstract boolean isKey(Object key);
+
+    /**
+     * @param key -- the boxed key, {@link #isKey(Object)} is true for it.
+     * @return the widened primitive key.
+     */
+    protected abstract long unbox(Object key);
+
+    private static int hash(long key) {
+        return HashSpreader.mix(Long.hashCode(key));
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(Table table, int index) {
+        return (V) table.values[index];
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private void resize(int capacity) {
+        Table previous = table;
+        table = new Table(capacity);
+        for (int i = 0; i < previous.capacity(); i++) {
+            if (previous.probeLengths[i] != 0) {
+                table.insert(table.stopFor(previous.hashes[i]), previous.hashes[i], previous.keys[i],
+                        previous.values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    boolean containsPrimitiveKey(long key) {
+        return table.findPosition(key) >= 0;
+    }
+
+    V getPrimitive(long key) {
+        int position = table.findPosition(key);
+        return position < 0 ? null : valueAt(table, position);
+    }
+
+    V putPrimitive(long key, V value) throws IllegalArgumentException {
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+        int hash = hash(key);
+        int position = table.findPosition(hash, key, null);
+        if (position >= 0) {
+            V result = valueAt(table, position);
+            table.values[position] = value;
+            return result;
+        }
+        table.insert(-(position + 1), hash, key, value);
+        modCount++;
+        if (RobinHoodTable.isOverloaded(table.size, table.capacity(), maxLoadFactor)) {
+            resize(2 * table.capacity());
+        }
+        return null;
+    }
+
+    V removePrimitive(long key) {
+        int position = table.findPosition(key);
+        if (position < 0) {
+            return null;
+        }
+        V result = valueAt(table, position);
+        table.deleteAt(position);
+        modCount++;
+        int newCapacity = RobinHoodTable.shrunkCapacity(ShrinkPolicy.HALVE, table.size, table.capacity(),
+                minCapacity, minLoadFactor, maxLoadFactor);
+        if (newCapacity < table.capacity()) {
+            resize(newCapacity);
+        }
+        return result;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return isKey(key) && containsPrimitiveKey(unbox(key));
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        return isKey(key) ? getPrimitive(unbox(key)) : null;
+    }
+
+    /**
+     * Puts the mapping in this dictionary.
+     * @param key -- the key of the mapping.
+     * @param value -- the value of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        return putPrimitive(unbox(key), value);
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        return isKey(key) ? removePrimitive(unbox(key)) : null;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary.
+     */
+    @Override
+    public void clear() {
+        table = new Table(minCapacity);
+        modCount++;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
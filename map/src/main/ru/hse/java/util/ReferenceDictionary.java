@@ -0,0 +1,471 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.*;
+
+/**
+ * The open addressing table whose keys or values are held by references which the garbage collector may clear.
+ * The probing is done by {@link RobinHoodTable} as in {@link DictionaryImpl}, and the table grows and shrinks
+ * like a {@link DictionaryImpl} with {@link ShrinkPolicy#HALVE}. The references of the stale mappings
+ * come to the reference queue of the dictionary, which is drained by the changing operations: every polled reference
+ * is found by its stored hash and its slot is freed, so there is no sweep over the whole table.
+ * The lookups skip the stale mappings but do not drain the queue, so they may be used during an iteration.
+ * Like the other dictionaries, it must not be used by several threads at once,
+ * the garbage collector only clears the referents and never changes the table.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+abstract class ReferenceDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final double DEFAULT_MIN_LOAD_FACTOR = 0.25;
+    private static final double DEFAULT_MAX_LOAD_FACTOR = 0.75;
+
+    private final int minCapacity;
+    private final double minLoadFactor;
+    private final double maxLoadFactor;
+    protected final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    // the size of the table counts the stale mappings too
+    private Table table;
+    private int modCount = 0;
+
+    /**
+     * The reference which comes to the queue, it keeps the spread hash code of the key to find its slot
+     * after the referent is cleared.
+     */
+    interface HashedReference {
+        int hash();
+    }
+
+    /**
+     * The stored keys and values, the stale mappings stay in the table until their references are polled.
+     */
+    private class Table extends RobinHoodTable {
+        private final Object[] keys;
+        private final Object[] values;
+
+        Table(int capacity) {
+            super(capacity);
+            keys = new Object[capacity];
+            values = new Object[capacity];
+        }
+
+        /**
+         * A polled reference is compared by identity with the references of the slot,
+         * only the references created by the subclasses are {@link HashedReference}s.
+         */
+        @Override
+        protected boolean keyEquals(int index, long primitiveKey, Object key) {
+            if (key instanceof HashedReference) {
+                return isReferenceOf((Reference<?>) key, keys[index], values[index]);
+            }
+            K storedKey = unwrapKey(keys[index]);
+            return storedKey != null && storedKey.equals(key);
+        }
+
+        @Override
+        protected void moveSlot(int from, int to) {
+            keys[to] = keys[from];
+            values[to] = values[from];
+        }
+
+        @Override
+        protected void clearSlot(int index) {
+            keys[index] = null;
+            values[index] = null;
+        }
+
+        void insert(int stop, Object storedKey, Object storedValue, int hash) {
+            insertAt(stop, hash);
+            keys[stop] = storedKey;
+            values[stop] = storedValue;
+        }
+    }
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return super.setValue(value);
+        }
+    }
+
+    /**
+     * Skips the free slots and the stale mappings, the key and the value of the next mapping
+     * are kept by the iterator, so they can not be collected between hasNext and next.
+     */
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int expectedModCount = modCount;
+        /*
+         * Removal keeps the order of the slots but may shift a visited mapping from the beginning
+         * of the table to its end, so the iterator stops after it has visited as many occupied slots as the table had
+         */
+        private int remaining = table.size;
+        // the occupied slots visited after the last returned mapping
+        private int visitedAfterLast = 0;
+        private int nextIndex = -1;
+        private K nextKey;
+        private V nextValue;
+        private int lastIndex = -1;
+
+        DictionaryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            nextKey = null;
+            nextValue = null;
+            while (nextKey == null && remaining > 0) {
+                nextIndex++;
+                if (table.probeLengths[nextIndex] != 0) {
+                    remaining--;
+                    visitedAfterLast++;
+                    nextKey = unwrapKey(table.keys[nextIndex]);
+                    nextValue = unwrapValue(table.values[nextIndex]);
+                    if (nextValue == null) {
+                        nextKey = null;
+                    }
+                }
+            }
+        }
+
+        protected abstract T extract(K key, V value);
+
+        @Override
+        public boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            T result = extract(nextKey, nextValue);
+            visitedAfterLast = 0;
+            advance();
+            return result;
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            removeAt(lastIndex);
+            if (table.probeLengths[lastIndex] != 0) {
+                // the following mappings are shifted back by one slot, the iteration goes on from the removed one
+                remaining += visitedAfterLast;
+                visitedAfterLast = 0;
+                nextIndex = lastIndex - 1;
+                advance();
+            }
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(K key, V value) {
+                    return new DictionaryEntry(key, value);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(K key, V value) {
+                    return key;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(K key, V value) {
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+    }
+
+    ReferenceDictionary() {
+        this(DEFAULT_CAPACITY, DEFAULT_MIN_LOAD_FACTOR, DEFAULT_MAX_LOAD_FACTOR);
+    }
+
+    ReferenceDictionary(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor)
+            throws IllegalArgumentException {
+        if (initCapacity < 0) {
+            throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
+        }
+        if (initMinLoadFactor < 0.0 || 0.5 < initMinLoadFactor) {
+            throw new IllegalArgumentException("the initial min load factor is not in [0, 0.5]");
+        }
+        if (initMaxLoadFactor <= 0.0 || 1 < initMaxLoadFactor) {
+            throw new IllegalArgumentException("the initial max load factor is not in (0, 1]");
+        }
+        minCapacity = RobinHoodTable.tableSizeFor(initCapacity);
+        minLoadFactor = initMinLoadFactor;
+        maxLoadFactor = initMaxLoadFactor;
+        table = new Table(minCapacity);
+    }
+
+    /**
+     * @return the stored form of the key.
+     */
+    protected abstract Object wrapKey(K key, int hash);
+
+    /**
+     * @return the key, or null if the stored key has been collected.
+     */
+    protected abstract K unwrapKey(Object storedKey);
+
+    /**
+     * @return the stored form of the value.
+     */
+    protected abstract Object wrapValue(V value, int hash);
+
+    /**
+     * @return the value, or null if the stored value has been collected.
+     */
+    protected abstract V unwrapValue(Object storedValue);
+
+    /**
+     * @return true if the reference came to the queue from the slot with the stored key and value.
+     */
+    protected abstract boolean isReferenceOf(Reference<?> reference, Object storedKey, Object storedValue);
+
+    private static int hash(Object key) {
+        return HashSpreader.mix(key.hashCode());
+    }
+
+    /**
+     * @return the slot of the key or -1, the stale slots are skipped.
+     */
+    private int find(Object key, int hash) {
+        int position = table.findPosition(hash, 0, key);
+        return position < 0 ? -1 : position;
+    }
+
+    /**
+     * Frees the slot and shifts the following mappings of the cluster back by one slot,
+     * so the order of the mappings in the table does not change.
+     */
+    private void removeAt(int index) {
+        table.deleteAt(index);
+        modCount++;
+    }
+
+    /**
+     * Frees the slots of the mappings whose references came to the queue.
+     * The probe for a reference stops where its mapping would be, so a reference whose mapping
+     * has already been dropped by a resize or replaced is ignored.
+     */
+    protected void drainQueue() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            int index = table.findPosition(((HashedReference) reference).hash(), 0, reference);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        Table previous = table;
+        table = new Table(capacity);
+        for (int i = 0; i < previous.capacity(); i++) {
+            // the stale mappings are dropped, their references are ignored when they are polled
+            if (previous.probeLengths[i] != 0 && unwrapKey(previous.keys[i]) != null
+                    && unwrapValue(previous.values[i]) != null) {
+                table.insert(table.stopFor(previous.hashes[i]), previous.keys[i], previous.values[i],
+                        previous.hashes[i]);
+            }
+        }
+        modCount++;
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary, the mappings collected after the last change
+     *         are counted until the next change drains the queue.
+     */
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key which is not collected.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key or it is collected.
+     */
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key, hash(key));
+        return index < 0 ? null : unwrapValue(table.values[index]);
+    }
+
+    /**
+     * Puts the mapping in this dictionary, the stale mappings are removed first.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+        drainQueue();
+        int hash = hash(key);
+        int position = table.findPosition(hash, 0, key);
+        if (position >= 0) {
+            V result = unwrapValue(table.values[position]);
+            table.values[position] = wrapValue(value, hash);
+            return result;
+        }
+        int stop = -(position + 1);
+        if (RobinHoodTable.isOverloaded(table.size + 1, table.capacity(), maxLoadFactor)) {
+            resize(2 * table.capacity());
+            stop = table.stopFor(hash);
+        }
+        table.insert(stop, wrapKey(key, hash), wrapValue(value, hash), hash);
+        modCount++;
+        return null;
+    }
+
+    /**
+     * Removes the mapping with the specified key, the stale mappings are removed first.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        drainQueue();
+        int index = find(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        V result = unwrapValue(table.values[index]);
+        removeAt(index);
+        int newCapacity = RobinHoodTable.shrunkCapacity(ShrinkPolicy.HALVE, table.size, table.capacity(),
+                minCapacity, minLoadFactor, maxLoadFactor);
+        if (newCapacity < table.capacity()) {
+            resize(newCapacity);
+        }
+        return result;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary.
+     */
+    @Override
+    public void clear() {
+        drainQueue();
+        table = new Table(minCapacity);
+        modCount++;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
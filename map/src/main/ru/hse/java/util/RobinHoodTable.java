@@ -0,0 +1,202 @@
+package ru.hse.java.util;
+
+/**
+ * The slots of an open addressing table with Robin Hood linear probing, shared by the dictionaries of the module.
+ * The table keeps the probe lengths and the spread hash codes of the slots, the subclasses keep the keys
+ * and the values in their own arrays and move them when the table asks.
+ * A cluster is ordered by the home slots of its mappings, so a probe stops at the first slot whose mapping
+ * is closer to its home slot than the key would be, an insertion shifts the rest of the cluster forward by one slot
+ * and a removal shifts it back by one slot. There are no tombstones, and the order of the mappings changes
+ * only where a mapping is inserted or removed, which the iterators rely on.
+ * The table never checks its load, the owner must leave at least one free slot.
+ */
+abstract class RobinHoodTable {
+    static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    /*
+     * probeLengths[i] is the number of slots probed to reach the key in the slot i
+     * starting from its home slot (the home slot itself is counted), 0 if the slot is free
+     */
+    final int[] probeLengths;
+    // hashes[i] is the spread hash code of the key in the slot i, it is compared before the keys
+    final int[] hashes;
+    final int mask;
+    int size = 0;
+
+    /**
+     * @param capacity -- the number of slots, a power of two.
+     */
+    RobinHoodTable(int capacity) {
+        probeLengths = new int[capacity];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @return the least power of two which is not less than the specified capacity.
+     */
+    static int tableSizeFor(int capacity) {
+        if (capacity <= 1) {
+            return 1;
+        }
+        return Math.min(Integer.highestOneBit(capacity - 1) << 1, MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * @return the least capacity which holds the specified number of mappings below the max load factor.
+     */
+    static int capacityFor(int size, double maxLoadFactor) {
+        return tableSizeFor((int) Math.min(MAXIMUM_CAPACITY, size / maxLoadFactor + 1));
+    }
+
+    /**
+     * @return true if the table of the specified capacity should grow to hold the specified number of mappings.
+     */
+    static boolean isOverloaded(int size, int capacity, double maxLoadFactor) {
+        return maxLoadFactor * capacity <= size && capacity < MAXIMUM_CAPACITY;
+    }
+
+    /**
+     * Asks the shrink policy for the capacity after a removal. The result is rounded up to a power of two
+     * and is never less than the min capacity or the capacity holding the mappings below the max load factor,
+     * since a full table would leave the next insertion without a free slot.
+     * @return the new capacity, not greater than the current one.
+     */
+    static int shrunkCapacity(ShrinkPolicy policy, int size, int capacity, int minCapacity,
+                              double minLoadFactor, double maxLoadFactor) {
+        int result = tableSizeFor(policy.shrink(size, capacity, minLoadFactor, maxLoadFactor));
+        result = Math.max(Math.max(minCapacity, capacityFor(size, maxLoadFactor)), result);
+        return Math.min(capacity, result);
+    }
+
+    /**
+     * The probe key is passed in both forms, so the tables with primitive keys do not box it:
+     * the tables with object keys compare the object and the others compare the primitive.
+     * @return true if the key in the specified slot is the probe key.
+     */
+    protected abstract boolean keyEquals(int index, long primitiveKey, Object key);
+
+    /**
+     * Copies the key and the value from one slot to another, the source slot is overwritten or cleared later.
+     */
+    protected abstract void moveSlot(int from, int to);
+
+    /**
+     * Drops the references to the key and the value of the freed slot.
+     */
+    protected abstract void clearSlot(int index);
+
+    final int capacity() {
+        return probeLengths.length;
+    }
+
+    final int nextIndex(int index) {
+        return (index + 1) & mask;
+    }
+
+    /**
+     * @return the first occupied slot starting from the specified one, or the capacity if there is none.
+     */
+    final int skipFree(int index) {
+        while (index < probeLengths.length && probeLengths[index] == 0) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * The probe stops at a free slot or at a slot whose mapping is closer to its home slot
+     * than the key would be, since the key would have been inserted there.
+     * The keys are compared only if their stored hashes are equal.
+     * @param hash -- the spread hash code of the key.
+     * @return the position of the slot with the specified key,
+     *         or -(stop + 1) where stop is the slot where the key should be inserted.
+     */
+    final int findPosition(int hash, long primitiveKey, Object key) {
+        int index = hash & mask;
+        int probeLength = 1;
+        while (probeLength <= probeLengths[index]) {
+            if (probeLength == probeLengths[index] && hashes[index] == hash
+                    && keyEquals(index, primitiveKey, key)) {
+                return index;
+            }
+            index = nextIndex(index);
+            probeLength++;
+        }
+        return -(index + 1);
+    }
+
+    /**
+     * @param hash -- the spread hash code of a key which is absent from the table.
+     * @return the slot where the key should be inserted.
+     */
+    final int stopFor(int hash) {
+        int index = hash & mask;
+        int probeLength = 1;
+        while (probeLength <= probeLengths[index]) {
+            index = nextIndex(index);
+            probeLength++;
+        }
+        return index;
+    }
+
+    /**
+     * Frees the stop slot by shifting the rest of its cluster forward by one slot and takes it
+     * for the mapping with the specified hash, the caller stores the key and the value in it.
+     * @param stop -- the slot returned by {@link #findPosition} or {@link #stopFor(int)}.
+     */
+    final void insertAt(int stop, int hash) {
+        int index = stop;
+        while (probeLengths[index] != 0) {
+            index = nextIndex(index);
+        }
+        while (index != stop) {
+            int previous = (index - 1) & mask;
+            moveSlot(previous, index);
+            probeLengths[index] = probeLengths[previous] + 1;
+            hashes[index] = hashes[previous];
+            index = previous;
+        }
+        probeLengths[stop] = ((stop - hash) & mask) + 1;
+        hashes[stop] = hash;
+        size++;
+    }
+
+    /**
+     * Frees the specified slot and shifts the following mappings of the same cluster
+     * one slot back, so no tombstone is left behind.
+     */
+    final void deleteAt(int index) {
+        size--;
+        int next = nextIndex(index);
+        while (probeLengths[next] > 1) {
+            moveSlot(next, index);
+            probeLengths[index] = probeLengths[next] - 1;
+            hashes[index] = hashes[next];
+            index = next;
+            next = nextIndex(next);
+        }
+        clearSlot(index);
+        probeLengths[index] = 0;
+    }
+
+    final int maxProbeLength() {
+        int result = 0;
+        for (int probeLength : probeLengths) {
+            result = Math.max(result, probeLength);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the number of the keys with every probe length to the histogram.
+     * @param counts -- the histogram, the element i is the number of the keys with the probe length i + 1.
+     */
+    final void countProbeLengths(int[] counts) {
+        for (int probeLength : probeLengths) {
+            if (probeLength != 0) {
+                counts[probeLength - 1]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ru.hse.java.util;
+
+/**
+ * Decides whether a {@link DictionaryImpl} shrinks its table after a removal and to which capacity.
+ * The table is never shrunk below its initial capacity or below the capacity which holds its mappings
+ * under the max load factor, and the returned capacity is rounded up to a power of two.
+ * A table shrunk to a load close to the max load factor grows back after a few insertions,
+ * so a policy should leave a gap between the load after shrinking and both load factors.
+ */
+@FunctionalInterface
+public interface ShrinkPolicy {
+
+    /**
+     * Halves the table when its load falls to the min load factor,
+     * unless the halved table would reach the max load factor.
+     */
+    ShrinkPolicy HALVE = (size, capacity, minLoadFactor, maxLoadFactor) ->
+            size <= minLoadFactor * capacity && size < maxLoadFactor * (capacity / 2) ? capacity / 2 : capacity;
+
+    /**
+     * Keeps the capacity, the table can be shrunk only by {@link DictionaryImpl#trimToSize()}.
+     */
+    ShrinkPolicy NEVER = (size, capacity, minLoadFactor, maxLoadFactor) -> capacity;
+
+    /**
+     * @param size -- the number of mappings after the removal.
+     * @param capacity -- the current capacity of the table.
+     * @param minLoadFactor -- the min load factor of the dictionary.
+     * @param maxLoadFactor -- the max load factor of the dictionary.
+     * @return the new capacity, or the current one to keep the table.
+     */
+    int shrink(int size, int capacity, double minLoadFactor, double maxLoadFactor);
+
+    /**
+     * When the load falls to the min load factor, shrinks the table at once to the least capacity
+     * whose load does not exceed the target load factor, so the load has to travel from the target
+     * to one of the load factors before the table is resized again.
+     * @param targetLoadFactor -- the load factor after shrinking, normally the middle between the load factors.
+     * @throws IllegalArgumentException -- if the target load factor is not in (0, 1].
+     */
+    static ShrinkPolicy toLoadFactor(double targetLoadFactor) throws IllegalArgumentException {
+        if (targetLoadFactor <= 0.0 || 1 < targetLoadFactor) {
+            throw new IllegalArgumentException("the target load factor is not in (0, 1]");
+        }
+        return new LoadFactorShrinkPolicy(targetLoadFactor);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.hse.java.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Buffered reader of a snapshot written by {@link SnapshotOutput}.
+ */
+class SnapshotInput {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    private final CRC32 checksum = new CRC32();
+    // the bytes of the buffer before this index are added to the checksum
+    private int checked = 0;
+
+    SnapshotInput(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    private void require(int length) throws IOException {
+        if (buffer.remaining() >= length) {
+            return;
+        }
+        checksum.update(buffer.array(), checked, buffer.position() - checked);
+        checked = 0;
+        buffer.compact();
+        while (buffer.position() < length) {
+            if (!buffer.hasRemaining()) {
+                // the buffer grows only as the bytes arrive, so a corrupted length can not exhaust the memory
+                buffer = ByteBuffer.allocate((int) Math.min(length, 2L * buffer.capacity())).put(buffer.flip());
+            }
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("the snapshot is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    int readInt() throws IOException {
+        require(Integer.BYTES);
+        return buffer.getInt();
+    }
+
+    double readDouble() throws IOException {
+        require(Double.BYTES);
+        return buffer.getDouble();
+    }
+
+    int readVarInt() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < Integer.SIZE; shift += 7) {
+            require(1);
+            byte next = buffer.get();
+            result |= (next & 0x7f) << shift;
+            if (next >= 0) {
+                return result;
+            }
+        }
+        throw new IOException("the snapshot is corrupted: too long number");
+    }
+
+    /**
+     * Reads the length of the encoding and decodes the object in place.
+     */
+    <T> T read(Codec<T> codec) throws IOException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new IOException("the snapshot is corrupted: negative length");
+        }
+        require(length);
+        int start = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(start + length);
+        T result = codec.decode(buffer);
+        buffer.limit(limit).position(start + length);
+        return result;
+    }
+
+    /**
+     * @throws IOException -- if the checksum written at the end of the snapshot does not match the read bytes.
+     */
+    void verifyChecksum() throws IOException {
+        checksum.update(buffer.array(), checked, buffer.position() - checked);
+        checked = buffer.position();
+        int expected = (int) checksum.getValue();
+        require(Integer.BYTES);
+        if (buffer.getInt() != expected) {
+            throw new IOException("the snapshot is corrupted: wrong checksum");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package ru.hse.java.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Buffered writer of a snapshot to a channel, the snapshot ends with the checksum of all its bytes.
+ * Small numbers are written as variable-length integers (7 bits per byte, the high bit is set
+ * on all bytes but the last one).
+ */
+class SnapshotOutput {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CRC32 checksum = new CRC32();
+
+    SnapshotOutput(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    private void require(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        checksum.update(buffer.array(), 0, buffer.limit());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    void writeInt(int value) throws IOException {
+        require(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    void writeDouble(double value) throws IOException {
+        require(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    /**
+     * @param value -- the number which is treated as unsigned.
+     */
+    void writeVarInt(int value) throws IOException {
+        require(5);
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes the length of the encoding and the encoding of the object.
+     */
+    <T> void write(Codec<? super T> codec, T value) throws IOException {
+        byte[] bytes = codec.encode(value);
+        writeVarInt(bytes.length);
+        if (bytes.length <= buffer.capacity()) {
+            require(bytes.length);
+            buffer.put(bytes);
+            return;
+        }
+        flush();
+        ByteBuffer source = ByteBuffer.wrap(bytes);
+        checksum.update(bytes);
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+
+    /**
+     * Writes the checksum and everything buffered to the channel.
+     */
+    void finish() throws IOException {
+        flush();
+        buffer.putInt((int) checksum.getValue()).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
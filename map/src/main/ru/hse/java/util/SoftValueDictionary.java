@@ -0,0 +1,84 @@
+package ru.hse.java.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+
+/**
+ * The data struct for storage of mappings whose values are softly referenced, so the garbage collector
+ * may clear the values under memory pressure, and then the mappings disappear.
+ * It suits the caches of the values which can be computed again.
+ * The key can not be null. The value can not be null.
+ * The keys are held strongly until their mappings are removed. See {@link ReferenceDictionary} for the table.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class SoftValueDictionary<K, V> extends ReferenceDictionary<K, V> {
+
+    /**
+     * The soft reference to the value which keeps the spread hash code of the key to find its slot
+     * after the value is cleared.
+     */
+    private static class ValueReference extends SoftReference<Object> implements HashedReference {
+        private final int hash;
+
+        ValueReference(Object value, int hash, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16),
+     * the default min load factor (0.25) and the default max load factor (0.75).
+     */
+    public SoftValueDictionary() {
+        super();
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param initCapacity -- the initial number of slots, it is rounded up to a power of two.
+     * @param initMinLoadFactor -- the table shrinks when its load falls to this factor.
+     * @param initMaxLoadFactor -- the table grows when its load reaches this factor.
+     * @throws IllegalArgumentException -- if the initial capacity is negative,
+     *                                     or the min load factor is not in [0, 0.5],
+     *                                     or the max load factor is not in (0, 1].
+     */
+    public SoftValueDictionary(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor)
+            throws IllegalArgumentException {
+        super(initCapacity, initMinLoadFactor, initMaxLoadFactor);
+    }
+
+    @Override
+    protected Object wrapKey(K key, int hash) {
+        return key;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected K unwrapKey(Object storedKey) {
+        return (K) storedKey;
+    }
+
+    @Override
+    protected Object wrapValue(V value, int hash) {
+        return new ValueReference(value, hash, queue);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected V unwrapValue(Object storedValue) {
+        return (V) ((ValueReference) storedValue).get();
+    }
+
+    @Override
+    protected boolean isReferenceOf(Reference<?> reference, Object storedKey, Object storedValue) {
+        return reference == storedValue;
+    }
+}
@@ -0,0 +1,507 @@
+package ru.hse.java.util;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * The data struct for storage of mappings in the layout of the Swiss tables.
+ * The key can not be null. The value can not be null.
+ * The slots are split into groups of 8, every slot has a control byte, and the control bytes of a group
+ * are packed into one long. A control byte of a taken slot keeps 7 bits of the hash code of its key,
+ * so a probe step compares the hash with the whole group by a few arithmetic operations on the long
+ * (SIMD within a register) and calls equals only for the matching slots.
+ * A probe stops at the first group with a free slot, so a failed lookup usually checks one group.
+ * The groups are probed in the triangular order, which visits every group of a power-of-two table.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class SwissDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static final int GROUP_SIZE = 8;
+    private static final int DEFAULT_CAPACITY = 1 << 4;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    // the table grows when the taken and deleted slots fill 7/8 of it
+    private static final int MAX_LOAD_NUMERATOR = 7;
+    private static final int MAX_LOAD_DENOMINATOR = 8;
+
+    /*
+     * The control bytes: a taken slot has the high bit clear and 7 bits of the hash in the others,
+     * a free slot is 1000_0000, a deleted one is 1111_1110
+     */
+    private static final long EMPTY = 0x80;
+    private static final long DELETED = 0xfe;
+    private static final long LOW_BITS = 0x0101_0101_0101_0101L;
+    private static final long HIGH_BITS = 0x8080_8080_8080_8080L;
+    private static final long EMPTY_GROUP = EMPTY * LOW_BITS;
+
+    private final int minCapacity;
+    private final HashSpreader spreader;
+    private long[] controls;
+    private Object[] keys;
+    private Object[] values;
+    private int groupMask;
+    private int size = 0;
+    private int deleted = 0;
+    private int modCount = 0;
+
+    private class DictionaryEntry extends SimpleEntry<K, V> {
+
+        public DictionaryEntry(K key, V value) {
+            super(key, value);
+        }
+
+        /**
+         * Replaces the value of this entry and writes it through to the dictionary
+         * if the dictionary still contains the key of this entry.
+         */
+        @Override
+        public V setValue(V value) {
+            if (value == null) {
+                throw new IllegalArgumentException("the value is null");
+            }
+            int index = find(getKey(), hash(getKey()));
+            if (index >= 0) {
+                values[index] = value;
+            }
+            return super.setValue(value);
+        }
+    }
+
+    private abstract class DictionaryIterator<T> implements Iterator<T> {
+        private int expectedModCount = modCount;
+        private int nextIndex = skipFree(0);
+        private int lastIndex = -1;
+
+        private int skipFree(int index) {
+            while (index < keys.length && keys[index] == null) {
+                index++;
+            }
+            return index;
+        }
+
+        protected abstract T extract(int index);
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < keys.length;
+        }
+
+        @Override
+        public T next() throws NoSuchElementException, ConcurrentModificationException {
+            checkModCount(expectedModCount);
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastIndex = nextIndex;
+            nextIndex = skipFree(nextIndex + 1);
+            return extract(lastIndex);
+        }
+
+        @Override
+        public void remove() throws IllegalStateException, ConcurrentModificationException {
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            checkModCount(expectedModCount);
+            deleteAt(lastIndex);
+            expectedModCount = modCount;
+            lastIndex = -1;
+        }
+    }
+
+    private class DictionaryEntrySet extends AbstractSet<Entry<K, V>> {
+
+        @Override
+        public @NotNull Iterator<Entry<K, V>> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected Entry<K, V> extract(int index) {
+                    return new DictionaryEntry(keyAt(index), valueAt(index));
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    private class DictionaryKeySet extends AbstractSet<K> {
+
+        @Override
+        public @NotNull Iterator<K> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected K extract(int index) {
+                    return keyAt(index);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return containsKey(key);
+        }
+    }
+
+    private class DictionaryValueCollection extends AbstractCollection<V> {
+
+        @Override
+        public @NotNull Iterator<V> iterator() {
+            return new DictionaryIterator<>() {
+                @Override
+                protected V extract(int index) {
+                    return valueAt(index);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16).
+     */
+    public SwissDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty dictionary with the default hash spreader.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two of at least 8.
+     * @throws IllegalArgumentException -- if the initial capacity is negative.
+     */
+    public SwissDictionary(int initCapacity) throws IllegalArgumentException {
+        this(initCapacity, HashSpreader.MURMUR);
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param initCapacity -- the initial capacity, it is rounded up to a power of two of at least 8.
+     * @param spreader -- the function mixing hash codes of the keys, all of its 32 bits are used.
+     * @throws IllegalArgumentException -- if the initial capacity is negative or the spreader is null.
+     */
+    public SwissDictionary(int initCapacity, @NotNull HashSpreader spreader) throws IllegalArgumentException {
+        if (initCapacity < 0) {
+            throw new IllegalArgumentException("the initial capacity is negative: " + initCapacity);
+        }
+        if (spreader == null) {
+            throw new IllegalArgumentException("the spreader is null");
+        }
+        minCapacity = tableSizeFor(initCapacity);
+        this.spreader = spreader;
+        allocate(minCapacity);
+    }
+
+    /**
+     * @return the least power of two which is not less than the specified capacity and the group size.
+     */
+    private static int tableSizeFor(int capacity) {
+        if (capacity <= GROUP_SIZE) {
+            return GROUP_SIZE;
+        }
+        return Math.min(Integer.highestOneBit(capacity - 1) << 1, MAXIMUM_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        controls = new long[capacity / GROUP_SIZE];
+        Arrays.fill(controls, EMPTY_GROUP);
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        groupMask = controls.length - 1;
+        deleted = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K keyAt(int index) {
+        return (K) keys[index];
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private int hash(Object key) {
+        return spreader.spread(key.hashCode());
+    }
+
+    /**
+     * The low 7 bits of the hash are kept in the control byte, the others choose the first group.
+     */
+    private static int controlByte(int hash) {
+        return hash & 0x7f;
+    }
+
+    private int firstGroup(int hash) {
+        return (hash >>> 7) & groupMask;
+    }
+
+    /**
+     * Subtracting 1 from every byte borrows from the high bit only in the zero bytes,
+     * a byte above a zero byte may be reported as well, so the matches are only candidates.
+     * @return the high bits of the bytes of the group which may be equal to the control byte.
+     */
+    private static long matchByte(long group, int controlByte) {
+        long difference = group ^ (LOW_BITS * controlByte);
+        return (difference - LOW_BITS) & ~difference & HIGH_BITS;
+    }
+
+    /**
+     * A free byte has the high bit set and the bit 1 clear, unlike a deleted byte.
+     * @return the high bits of the free bytes of the group.
+     */
+    private static long matchEmpty(long group) {
+        return group & (~group << 6) & HIGH_BITS;
+    }
+
+    /**
+     * @return the high bits of the free and deleted bytes of the group.
+     */
+    private static long matchEmptyOrDeleted(long group) {
+        return group & HIGH_BITS;
+    }
+
+    /**
+     * @param match -- the non-zero result of a match.
+     * @return the index of the slot of the lowest matched byte.
+     */
+    private static int slotOf(int group, long match) {
+        return group * GROUP_SIZE + (Long.numberOfTrailingZeros(match) >>> 3);
+    }
+
+    private void setControl(int index, long control) {
+        int group = index / GROUP_SIZE;
+        int shift = (index % GROUP_SIZE) * Byte.SIZE;
+        controls[group] = (controls[group] & ~(0xffL << shift)) | (control << shift);
+    }
+
+    /**
+     * @return the index of the slot of the key, or -1 if there is no such key.
+     */
+    private int find(Object key, int hash) {
+        int controlByte = controlByte(hash);
+        for (int group = firstGroup(hash), step = 1; ; group = (group + step++) & groupMask) {
+            long control = controls[group];
+            for (long match = matchByte(control, controlByte); match != 0; match &= match - 1) {
+                int index = slotOf(group, match);
+                if (key.equals(keys[index])) {
+                    return index;
+                }
+            }
+            if (matchEmpty(control) != 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first free or deleted slot on the probe sequence of the hash.
+     */
+    private int findInsertSlot(int hash) {
+        for (int group = firstGroup(hash), step = 1; ; group = (group + step++) & groupMask) {
+            long match = matchEmptyOrDeleted(controls[group]);
+            if (match != 0) {
+                return slotOf(group, match);
+            }
+        }
+    }
+
+    private void insertAt(int index, int hash, Object key, Object value) {
+        if (((controls[index / GROUP_SIZE] >>> ((index % GROUP_SIZE) * Byte.SIZE)) & 0xff) == DELETED) {
+            deleted--;
+        }
+        setControl(index, controlByte(hash));
+        keys[index] = key;
+        values[index] = value;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * A slot of a group with a free slot becomes free, since no probe has passed such a group,
+     * otherwise the slot is marked as deleted to keep the probes going.
+     */
+    private void deleteAt(int index) {
+        if (matchEmpty(controls[index / GROUP_SIZE]) != 0) {
+            setControl(index, EMPTY);
+        } else {
+            setControl(index, DELETED);
+            deleted++;
+        }
+        keys[index] = null;
+        values[index] = null;
+        size--;
+        modCount++;
+    }
+
+    private void resize(int capacity) {
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int hash = hash(oldKeys[i]);
+                insertAt(findInsertSlot(hash), hash, oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Called before an insertion: grows the table if it is full of taken and deleted slots,
+     * or only drops the deleted slots if at most half of the load are the taken ones.
+     */
+    private void reserveSlot() {
+        int capacity = keys.length;
+        if ((long) (size + deleted + 1) * MAX_LOAD_DENOMINATOR <= (long) capacity * MAX_LOAD_NUMERATOR) {
+            return;
+        }
+        if ((long) size * 2 * MAX_LOAD_DENOMINATOR <= (long) capacity * MAX_LOAD_NUMERATOR || capacity == MAXIMUM_CAPACITY) {
+            resize(capacity);
+        } else {
+            resize(2 * capacity);
+        }
+    }
+
+    /**
+     * Called after a removal: halves the table if its load is a quarter of the max load.
+     */
+    private void shrinkIfSparse() {
+        int capacity = keys.length;
+        if (capacity > minCapacity && (long) size * 4 * MAX_LOAD_DENOMINATOR <= (long) capacity * MAX_LOAD_NUMERATOR) {
+            resize(capacity / 2);
+        }
+    }
+
+    private void checkModCount(int expectedModCount) throws ConcurrentModificationException {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    private static void checkMapping(Object key, Object value) throws IllegalArgumentException {
+        if (key == null) {
+            throw new IllegalArgumentException("the key is null");
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("the value is null");
+        }
+    }
+
+    /**
+     * @return the number of mappings in this dictionary.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param key -- the key whose existence we want to determine.
+     * @return true if this dictionary contains a mapping with the specified key.
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && find(key, hash(key)) >= 0;
+    }
+
+    /**
+     * @param key -- the key whose value we are looking for.
+     * @return the value by the specified key,
+     *         or null if this dictionary contains no mapping with specified key.
+     */
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key, hash(key));
+        return index < 0 ? null : valueAt(index);
+    }
+
+    /**
+     * Puts the mapping in this dictionary.
+     * @param key -- the key of the mapping.
+     * @param value -- the key of the mapping.
+     * @return previous value if this dictionary contained the mapping with the specified key, or null.
+     * @throws IllegalArgumentException if the specified key is null or the specified value is null.
+     */
+    @Override
+    public V put(@NotNull K key, @NotNull V value) throws IllegalArgumentException {
+        checkMapping(key, value);
+        int hash = hash(key);
+        int index = find(key, hash);
+        if (index >= 0) {
+            V result = valueAt(index);
+            values[index] = value;
+            return result;
+        }
+        reserveSlot();
+        insertAt(findInsertSlot(hash), hash, key, value);
+        return null;
+    }
+
+    /**
+     * Removes the mapping with the specified key.
+     * @param key -- the key whose mapping we want to delete.
+     * @return the value of the deleted mapping if this dictionary contained it, or null.
+     */
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        int index = find(key, hash(key));
+        if (index < 0) {
+            return null;
+        }
+        V result = valueAt(index);
+        deleteAt(index);
+        shrinkIfSparse();
+        return result;
+    }
+
+    /**
+     * Removes all of the mappings from this dictionary.
+     */
+    @Override
+    public void clear() {
+        allocate(minCapacity);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return a set view of the keys contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<K> keySet() {
+        return new DictionaryKeySet();
+    }
+
+    /**
+     * @return a collection view of the values contained in this dictionary.
+     */
+    @Override
+    public @NotNull Collection<V> values() {
+        return new DictionaryValueCollection();
+    }
+
+    /**
+     * @return a set view of the mappings contained in this dictionary.
+     */
+    @Override
+    public @NotNull Set<Entry<K, V>> entrySet() {
+        return new DictionaryEntrySet();
+    }
+}
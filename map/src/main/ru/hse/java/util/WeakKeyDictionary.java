@@ -0,0 +1,85 @@
+package ru.hse.java.util;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * The data struct for storage of mappings whose keys are weakly referenced,
+ * so a mapping does not keep its key alive and disappears after the key is collected.
+ * The key can not be null. The value can not be null.
+ * The keys are compared by equals, so the keys should not be equal to other objects which can be
+ * created again, like strings or boxed numbers, otherwise a mapping may disappear while an equal key is alive.
+ * The value is held strongly, so it must not refer to its key. See {@link ReferenceDictionary} for the table.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+public class WeakKeyDictionary<K, V> extends ReferenceDictionary<K, V> {
+
+    /**
+     * The weak reference to the key which keeps the spread hash code of the key to find its slot
+     * after the key is collected.
+     */
+    private static class KeyReference extends WeakReference<Object> implements HashedReference {
+        private final int hash;
+
+        KeyReference(Object key, int hash, ReferenceQueue<Object> queue) {
+            super(key, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    /**
+     * Constructs an empty dictionary with the default initial capacity (16),
+     * the default min load factor (0.25) and the default max load factor (0.75).
+     */
+    public WeakKeyDictionary() {
+        super();
+    }
+
+    /**
+     * Constructs an empty dictionary.
+     * @param initCapacity -- the initial number of slots, it is rounded up to a power of two.
+     * @param initMinLoadFactor -- the table shrinks when its load falls to this factor.
+     * @param initMaxLoadFactor -- the table grows when its load reaches this factor.
+     * @throws IllegalArgumentException -- if the initial capacity is negative,
+     *                                     or the min load factor is not in [0, 0.5],
+     *                                     or the max load factor is not in (0, 1].
+     */
+    public WeakKeyDictionary(int initCapacity, double initMinLoadFactor, double initMaxLoadFactor)
+            throws IllegalArgumentException {
+        super(initCapacity, initMinLoadFactor, initMaxLoadFactor);
+    }
+
+    @Override
+    protected Object wrapKey(K key, int hash) {
+        return new KeyReference(key, hash, queue);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected K unwrapKey(Object storedKey) {
+        return (K) ((KeyReference) storedKey).get();
+    }
+
+    @Override
+    protected Object wrapValue(V value, int hash) {
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected V unwrapValue(Object storedValue) {
+        return (V) storedValue;
+    }
+
+    @Override
+    protected boolean isReferenceOf(Reference<?> reference, Object storedKey, Object storedValue) {
+        return reference == storedKey;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.hse.java.util;
+
+import ru.hse.java.util.CacheDictionary.Node;
+
+/**
+ * W-TinyLFU: new nodes enter a small LRU window, a node leaving the window competes with the victim
+ * of the probation segment of the main segmented LRU, and the less frequent of them is evicted.
+ * A node accessed in the probation segment is promoted to the protected segment,
+ * the overflow of the protected segment is demoted back to the probation one.
+ * @param <K> -- the type of keys.
+ * @param <V> -- the type of values.
+ */
+class WindowTinyLfuPolicy<K, V> implements EvictionPolicy<K, V> {
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final NodeQueue<K, V> window = new NodeQueue<>();
+    private final NodeQueue<K, V> probation = new NodeQueue<>();
+    private final NodeQueue<K, V> protectedSegment = new NodeQueue<>();
+    private long windowMaximum = 1;
+    private long protectedMaximum = 0;
+    private FrequencySketch sketch = new FrequencySketch(1);
+
+    @Override
+    public void setMaximumWeight(long maximumWeight) {
+        windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+        protectedMaximum = (long) (Math.max(0, maximumWeight - windowMaximum) * PROTECTED_RATIO);
+        sketch = new FrequencySketch(maximumWeight);
+    }
+
+    private NodeQueue<K, V> queueOf(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                return window;
+            case PROBATION:
+                return probation;
+            default:
+                return protectedSegment;
+        }
+    }
+
+    private void moveTo(Node<K, V> node, int queue) {
+        queueOf(node).remove(node);
+        node.queue = queue;
+        queueOf(node).addLast(node);
+    }
+
+    @Override
+    public void onInsert(Node<K, V> node) {
+        sketch.increment(node.hash());
+        node.queue = WINDOW;
+        window.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        sketch.increment(node.hash());
+        if (node.queue == PROBATION) {
+            moveTo(node, PROTECTED);
+            while (protectedSegment.weight() > protectedMaximum) {
+                moveTo(protectedSegment.first(), PROBATION);
+            }
+        } else {
+            queueOf(node).moveToLast(node);
+        }
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        queueOf(node).remove(node);
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        Node<K, V> candidate = null;
+        while (window.weight() > windowMaximum) {
+            candidate = window.first();
+            moveTo(candidate, PROBATION);
+        }
+        Node<K, V> victim = probation.first();
+        if (victim == null) {
+            victim = protectedSegment.first() != null ? protectedSegment.first() : window.first();
+        }
+        if (candidate == null || candidate == victim) {
+            return victim;
+        }
+        return sketch.frequency(candidate.hash()) > sketch.frequency(victim.hash()) ? victim : candidate;
+    }
+}
@@ -0,0 +1,146 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class CacheDictionaryTest {
+    private static final int SEED = 314;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new CacheDictionary<Integer, Integer>(-1, EvictionPolicy.lru());
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new CacheDictionary<Integer, Integer>(16, null);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new CacheDictionary<Integer, Integer>(16, null, EvictionPolicy.lru());
+        });
+        Dictionary<Integer, Integer> dict = new CacheDictionary<>(0, EvictionPolicy.windowTinyLfu());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertNull(dict.put(0, 0));
+        Assertions.assertTrue(dict.isEmpty());
+        Dictionary<Integer, Integer> negative = new CacheDictionary<>(16, (key, value) -> value,
+                EvictionPolicy.lru());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> negative.put(0, -1));
+    }
+
+    @Test
+    public void testLruOrder() {
+        CacheDictionary<Integer, String> cache = new CacheDictionary<>(3, EvictionPolicy.lru());
+        cache.put(1, "hello");
+        cache.put(2, "my");
+        cache.put(3, "dear");
+        Assertions.assertEquals("hello", cache.get(1));
+        Assertions.assertTrue(cache.containsKey(2));
+        cache.put(4, "friend");
+        Assertions.assertEquals(Set.of(1, 3, 4), cache.keySet());
+        cache.put(3, "my");
+        cache.put(5, "friend");
+        Assertions.assertEquals(Set.of(3, 4, 5), cache.keySet());
+        Assertions.assertNull(cache.get(1));
+        Assertions.assertEquals(1, cache.hitCount());
+        Assertions.assertEquals(1, cache.missCount());
+        Assertions.assertEquals(2, cache.evictionCount());
+    }
+
+    @Test
+    public void testWeight() {
+        CacheDictionary<Integer, String> cache = new CacheDictionary<>(10, (key, value) -> value.length(),
+                EvictionPolicy.lru());
+        cache.put(1, "hello");
+        cache.put(2, "my");
+        cache.put(3, "dear");
+        Assertions.assertEquals(11 - 5, cache.weight());
+        Assertions.assertEquals(Set.of(2, 3), cache.keySet());
+        cache.put(2, "friend");
+        Assertions.assertEquals(10, cache.weight());
+        cache.put(4, "long long value");
+        Assertions.assertTrue(cache.isEmpty());
+        Assertions.assertEquals(0, cache.weight());
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        CacheDictionary<Integer, String> cache = new CacheDictionary<>(10, (key, value) -> value.length(),
+                EvictionPolicy.windowTinyLfu());
+        cache.put(1, "a");
+        cache.put(2, "b");
+        cache.put(3, "c");
+        Iterator<Integer> iterator = cache.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals(2, cache.weight());
+        Assertions.assertFalse(cache.containsKey(removed));
+        for (Map.Entry<Integer, String> entry : cache.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertEquals(4, cache.weight());
+        Assertions.assertTrue(cache.values().stream().allMatch(value -> value.endsWith("!")));
+        cache.clear();
+        Assertions.assertEquals(0, cache.weight());
+        cache.put(1, "hello");
+        Assertions.assertEquals(Map.of(1, "hello"), cache);
+    }
+
+    @Test
+    public void testStressLruMatchesLinkedHashMap() {
+        int maximumSize = 1000;
+        Dictionary<Integer, Integer> testedDict = new CacheDictionary<>(maximumSize, EvictionPolicy.lru());
+        Map<Integer, Integer> correctDict = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Integer> eldest) {
+                return size() > maximumSize;
+            }
+        };
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 3000 : 1100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else if (random.nextInt(10) == 0) {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+    }
+
+    @Test
+    public void testStressTinyLfuKeepsSizeAndResistsScan() {
+        int maximumSize = 1000;
+        CacheDictionary<Integer, Integer> lru = new CacheDictionary<>(maximumSize, EvictionPolicy.lru());
+        CacheDictionary<Integer, Integer> tinyLfu = new CacheDictionary<>(maximumSize,
+                EvictionPolicy.windowTinyLfu());
+        Random random = new Random(SEED);
+        int scanKey = 1_000_000;
+        for (int i = 0; i < 1000_000; i++) {
+            // a hot set of 500 keys interleaved with a scan over keys which are never repeated
+            int key = random.nextBoolean() ? random.nextInt(500) : scanKey++;
+            for (CacheDictionary<Integer, Integer> cache : List.of(lru, tinyLfu)) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+                Assertions.assertTrue(cache.size() <= maximumSize);
+            }
+        }
+        Assertions.assertEquals(1000_000, tinyLfu.hitCount() + tinyLfu.missCount());
+        Assertions.assertEquals(tinyLfu.missCount() - tinyLfu.size(), tinyLfu.evictionCount());
+        Assertions.assertEquals(maximumSize, tinyLfu.weight());
+        Assertions.assertTrue(tinyLfu.hitCount() > lru.hitCount(),
+                tinyLfu.hitCount() + " hits of W-TinyLFU, " + lru.hitCount() + " hits of LRU");
+        for (int key = 0; key < 500; key++) {
+            Assertions.assertEquals(key, tinyLfu.get(key));
+        }
+    }
+}
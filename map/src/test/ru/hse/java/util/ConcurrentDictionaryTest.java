@@ -0,0 +1,177 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ConcurrentDictionaryTest {
+    private static final int SEED = 314;
+    private static final int THREADS = 8;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ConcurrentDictionary<Integer, Integer>(-1, 0.25, 0.75, 16);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new ConcurrentDictionary<Integer, Integer>(16, 0.25, 0.75, 0);
+        });
+        Assertions.assertDoesNotThrow(() -> {
+            new ConcurrentDictionary<Integer, Integer>(0, 0.0, 1.0, 1);
+        });
+        Dictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+    }
+
+    @Test
+    public void testAtomicMethods() {
+        ConcurrentDictionary<Integer, String> dict = new ConcurrentDictionary<>();
+        Assertions.assertNull(dict.putIfAbsent(1, "hello"));
+        Assertions.assertEquals("hello", dict.putIfAbsent(1, "my"));
+        Assertions.assertFalse(dict.replace(1, "my", "dear"));
+        Assertions.assertTrue(dict.replace(1, "hello", "dear"));
+        Assertions.assertEquals("dear", dict.replace(1, "friend"));
+        Assertions.assertNull(dict.replace(2, "friend"));
+        Assertions.assertFalse(dict.remove(1, "dear"));
+        Assertions.assertTrue(dict.remove(1, "friend"));
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<Integer, String> dict = new ConcurrentDictionary<>();
+        dict.put(1, "hello");
+        dict.put(2, "my");
+        dict.put(3, "friend");
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+        Assertions.assertThrows(NoSuchElementException.class, () -> dict.entrySet().iterator().next());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<Integer, Integer> testedDict = new ConcurrentDictionary<>(0, 0.25, 0.75, 4);
+        Map<Integer, Integer> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+        runInParallel(thread -> {
+            for (int i = 0; i < 100_000; i++) {
+                dict.put(i * THREADS + thread, i);
+                dict.merge(-1, 1, Integer::sum);
+                if (i % 2 == 1) {
+                    Assertions.assertEquals(i - 1, dict.remove((i - 1) * THREADS + thread));
+                }
+            }
+        });
+        Assertions.assertEquals(THREADS * 50_000 + 1, dict.size());
+        Assertions.assertEquals(THREADS * 100_000, dict.get(-1));
+        for (int i = 1; i < 100_000; i += 2) {
+            for (int thread = 0; thread < THREADS; thread++) {
+                Assertions.assertEquals(i, dict.get(i * THREADS + thread));
+            }
+        }
+    }
+
+    @Test
+    public void testReadersSeeEveryStableKey() throws InterruptedException {
+        ConcurrentDictionary<Integer, Integer> dict = new ConcurrentDictionary<>();
+        for (int i = 0; i < 10_000; i++) {
+            dict.put(i, i);
+        }
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            Random random = new Random(SEED);
+            while (isWriting.get()) {
+                int key = 10_000 + random.nextInt(100_000);
+                if (dict.remove(key) == null) {
+                    dict.put(key, key);
+                }
+            }
+        });
+        writer.start();
+        try {
+            runInParallel(thread -> {
+                Random random = new Random(thread);
+                for (int i = 0; i < 200_000; i++) {
+                    int key = random.nextInt(10_000);
+                    Assertions.assertEquals(key, dict.get(key));
+                }
+                int stableKeys = 0;
+                for (Entry<Integer, Integer> entry : dict.entrySet()) {
+                    Assertions.assertEquals(entry.getKey(), entry.getValue());
+                    stableKeys += entry.getKey() < 10_000 ? 1 : 0;
+                }
+                Assertions.assertEquals(10_000, stableKeys);
+            });
+        } finally {
+            isWriting.set(false);
+            writer.join();
+        }
+    }
+
+    private interface ThreadBody {
+        void run(int thread);
+    }
+
+    private static void runInParallel(ThreadBody body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    body.run(thread);
+                } catch (Throwable failure) {
+                    failures.add(failure);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(List.of(), failures);
+    }
+
+}
@@ -0,0 +1,130 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+public class CuckooDictionaryTest {
+    private static final int SEED = 271;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new CuckooDictionary<Integer, Integer>(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new CuckooDictionary<Integer, Integer>(16, null);
+        });
+        Dictionary<Integer, Integer> dict = new CuckooDictionary<>(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        for (int i = 0; i < 8; i++) {
+            dict.put(i, i);
+        }
+        Assertions.assertNull(dict.get(8));
+        Assertions.assertEquals(7, dict.get(7));
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<Integer, String> dict = new CuckooDictionary<>();
+        dict.put(1, "hello");
+        dict.put(2, "my");
+        dict.put(3, "friend");
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        Iterator<String> values = dict.values().iterator();
+        dict.put(4, "dear");
+        Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testEqualHashes() {
+        // no capacity separates the keys, so they live in the two buckets and the grown stash
+        Dictionary<Integer, Integer> dict = new CuckooDictionary<>(16, hash -> 0);
+        for (int i = 0; i < 100; i++) {
+            dict.put(i, i);
+        }
+        Assertions.assertEquals(100, dict.size());
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() % 3 == 0) {
+                iterator.remove();
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            Assertions.assertEquals(i < 100 && i % 3 != 0 ? i : null, dict.get(i));
+        }
+        Assertions.assertEquals(66, dict.size());
+    }
+
+    @Test
+    public void testLookupBoundAgainstProbing() {
+        // the hash codes are not spread and differ only in the high bits, so they fall into few home slots
+        HashSpreader identity = hash -> hash;
+        CuckooDictionary<Integer, Integer> cuckoo = new CuckooDictionary<>(16, identity);
+        DictionaryImpl<Integer, Integer> probing = new DictionaryImpl<>(16, 0.25, 0.75, identity);
+        Random random = new Random(SEED);
+        for (int i = 0; i < 10_000; i++) {
+            int key = random.nextInt() << 20;
+            Assertions.assertEquals(probing.put(key, i), cuckoo.put(key, i));
+        }
+        Assertions.assertEquals(probing, cuckoo);
+        // the probing walks the whole cluster, the cuckoo lookups check two buckets and the stash
+        Assertions.assertTrue(probing.maxProbeLength() > 100 * CuckooDictionary.LOOKUP_SLOTS,
+                "the longest probe is " + probing.maxProbeLength());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<Integer, Integer> testedDict = new CuckooDictionary<>();
+        Map<Integer, Integer> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testStressChurnWithStableSize() {
+        Dictionary<Integer, Integer> dict = new CuckooDictionary<>();
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, i);
+        }
+        for (int i = 1000; i < 1000_000; i++) {
+            Assertions.assertEquals(i - 1000, dict.remove(i - 1000));
+            Assertions.assertNull(dict.put(i, i));
+            Assertions.assertFalse(dict.containsKey(i - 1000));
+        }
+        Assertions.assertEquals(1000, dict.size());
+        for (int i = 1000_000 - 1000; i < 1000_000; i++) {
+            Assertions.assertEquals(i, dict.get(i));
+        }
+    }
+}
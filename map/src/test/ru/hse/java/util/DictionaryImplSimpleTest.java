@@ -3,6 +3,10 @@ package ru.hse.java.util;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.*;
 import java.util.Map.Entry;
 
@@ -94,17 +98,18 @@ public class DictionaryImplSimpleTest {
         Set<Integer> set = dict.keySet();
         Iterator<Integer> iterator = set.iterator();
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        Integer first = iterator.next();
         iterator.remove();
         Assertions.assertEquals(1, set.size());
         Assertions.assertEquals(1, dict.size());
-        Assertions.assertFalse(dict.containsKey(1));
+        Assertions.assertFalse(dict.containsKey(first));
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        Integer second = iterator.next();
         iterator.remove();
         Assertions.assertEquals(0, set.size());
         Assertions.assertEquals(0, dict.size());
-        Assertions.assertFalse(dict.containsKey(2));
+        Assertions.assertFalse(dict.containsKey(second));
+        Assertions.assertEquals(Set.of(1, 2), Set.of(first, second));
         Assertions.assertThrows(NoSuchElementException.class, iterator::next);
     }
 
@@ -114,24 +119,27 @@ public class DictionaryImplSimpleTest {
         dict.put(1, "hello");
         dict.put(2, "my");
         dict.put(3, "hello");
+        List<String> expected = new ArrayList<>(List.of("hello", "hello", "my"));
         Collection<String> set = dict.values();
         Iterator<String> iterator = set.iterator();
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        expected.remove(iterator.next());
         iterator.remove();
         Assertions.assertEquals(2, set.size());
         Assertions.assertEquals(2, dict.size());
-        Assertions.assertFalse(dict.containsKey(1));
+        Assertions.assertEquals(expected, sorted(dict.values()));
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        expected.remove(iterator.next());
         iterator.remove();
         Assertions.assertEquals(1, set.size());
         Assertions.assertEquals(1, dict.size());
-        Assertions.assertFalse(dict.containsKey(2));
+        Assertions.assertEquals(expected, sorted(dict.values()));
         iterator.next();
         iterator.remove();
         Assertions.assertEquals(0, set.size());
         Assertions.assertEquals(0, dict.size());
+        Assertions.assertFalse(dict.containsKey(1));
+        Assertions.assertFalse(dict.containsKey(2));
         Assertions.assertFalse(dict.containsKey(3));
         Assertions.assertThrows(NoSuchElementException.class, iterator::next);
     }
@@ -144,18 +152,394 @@ public class DictionaryImplSimpleTest {
         Set<Entry<Integer, String>> set = dict.entrySet();
         Iterator<Entry<Integer, String>> iterator = set.iterator();
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        Entry<Integer, String> first = iterator.next();
         iterator.remove();
         Assertions.assertEquals(1, set.size());
         Assertions.assertEquals(1, dict.size());
-        Assertions.assertFalse(dict.containsKey(1));
+        Assertions.assertFalse(dict.containsKey(first.getKey()));
         Assertions.assertThrows(IllegalStateException.class, iterator::remove);
-        iterator.next();
+        Entry<Integer, String> second = iterator.next();
         iterator.remove();
         Assertions.assertEquals(0, set.size());
         Assertions.assertEquals(0, dict.size());
-        Assertions.assertFalse(dict.containsKey(2));
+        Assertions.assertFalse(dict.containsKey(second.getKey()));
+        Assertions.assertEquals(Set.of(1, 2), Set.of(first.getKey(), second.getKey()));
         Assertions.assertThrows(NoSuchElementException.class, iterator::next);
     }
 
+    @Test
+    public void testEntrySetValueWritesThrough() {
+        Dictionary<Integer, String> dict = new DictionaryImpl<>();
+        dict.put(1, "hello");
+        dict.put(2, "my");
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertEquals("hello!", dict.get(1));
+        Assertions.assertEquals("my!", dict.get(2));
+        Entry<Integer, String> entry = dict.entrySet().iterator().next();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> entry.setValue(null));
+    }
+
+    @Test
+    public void testKeysWithExtremeHashCodes() {
+        Dictionary<FixedHashKey, String> dict = new DictionaryImpl<>(0, 0.25, 0.75);
+        FixedHashKey min = new FixedHashKey(Integer.MIN_VALUE, "min");
+        FixedHashKey max = new FixedHashKey(Integer.MAX_VALUE, "max");
+        FixedHashKey alsoMin = new FixedHashKey(Integer.MIN_VALUE, "also min");
+        dict.put(min, "min");
+        dict.put(max, "max");
+        dict.put(alsoMin, "also min");
+        Assertions.assertEquals(3, dict.size());
+        Assertions.assertEquals("min", dict.get(min));
+        Assertions.assertEquals("max", dict.get(max));
+        Assertions.assertEquals("also min", dict.remove(alsoMin));
+        Assertions.assertEquals("min", dict.get(min));
+    }
+
+    @Test
+    public void testSeededSpreader() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new DictionaryImpl<Integer, Integer>(16, 0.25, 0.75, null);
+        });
+        Dictionary<Integer, Integer> first = new DictionaryImpl<>(16, 0.25, 0.75, HashSpreader.seeded(1));
+        Dictionary<Integer, Integer> second = new DictionaryImpl<>(16, 0.25, 0.75, HashSpreader.seeded(2));
+        for (int i = 0; i < 1000; i++) {
+            first.put(i << 10, i);
+            second.put(i << 10, i);
+        }
+        Assertions.assertEquals(first, second);
+        Assertions.assertNotEquals(new ArrayList<>(first.keySet()), new ArrayList<>(second.keySet()));
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i, first.remove(i << 10));
+            Assertions.assertEquals(i, second.get(i << 10));
+        }
+        Assertions.assertTrue(first.isEmpty());
+    }
+
+    @Test
+    public void testComputeMethods() {
+        Dictionary<Integer, String> dict = new DictionaryImpl<>();
+        Assertions.assertNull(dict.putIfAbsent(1, "hello"));
+        Assertions.assertEquals("hello", dict.putIfAbsent(1, "my"));
+        Assertions.assertEquals("hello", dict.getOrDefault(1, "my"));
+        Assertions.assertEquals("my", dict.getOrDefault(2, "my"));
+        Assertions.assertEquals("hello", dict.computeIfAbsent(1, key -> "my"));
+        Assertions.assertEquals("2", dict.computeIfAbsent(2, String::valueOf));
+        Assertions.assertNull(dict.computeIfAbsent(3, key -> null));
+        Assertions.assertFalse(dict.containsKey(3));
+        Assertions.assertNull(dict.computeIfPresent(3, (key, value) -> "dear"));
+        Assertions.assertEquals("22", dict.computeIfPresent(2, (key, value) -> value + key));
+        Assertions.assertNull(dict.computeIfPresent(2, (key, value) -> null));
+        Assertions.assertFalse(dict.containsKey(2));
+        Assertions.assertEquals("friend", dict.compute(4, (key, value) -> value == null ? "friend" : "foe"));
+        Assertions.assertEquals("foe", dict.compute(4, (key, value) -> value == null ? "friend" : "foe"));
+        Assertions.assertNull(dict.compute(4, (key, value) -> null));
+        Assertions.assertEquals("a", dict.merge(5, "a", String::concat));
+        Assertions.assertEquals("ab", dict.merge(5, "b", String::concat));
+        Assertions.assertNull(dict.merge(5, "c", (first, second) -> null));
+        Assertions.assertEquals(Map.of(1, "hello"), dict);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.merge(null, "a", String::concat));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.merge(1, null, String::concat));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.putIfAbsent(1, null));
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> {
+            dict.computeIfAbsent(6, key -> dict.put(7, "seven"));
+        });
+    }
+
+    @Test
+    public void testComputeMethodsProbeOnce() {
+        Dictionary<CountingKey, Integer> dict = new DictionaryImpl<>();
+        CountingKey key = new CountingKey(42);
+        dict.merge(key, 1, Integer::sum);
+        Assertions.assertEquals(1, key.hashCodeCalls);
+        dict.merge(key, 1, Integer::sum);
+        Assertions.assertEquals(2, key.hashCodeCalls);
+        dict.compute(key, (ignored, value) -> value + 1);
+        dict.computeIfPresent(key, (ignored, value) -> value + 1);
+        dict.computeIfAbsent(key, ignored -> 0);
+        dict.putIfAbsent(key, 0);
+        dict.getOrDefault(key, 0);
+        Assertions.assertEquals(7, key.hashCodeCalls);
+        Assertions.assertEquals(4, dict.get(key));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        DictionaryImpl<String, Integer> dict = new DictionaryImpl<>(0, 0.25, 0.75, HashSpreader.MURMUR,
+                DictionaryImpl.ResizeMode.INCREMENTAL);
+        for (int i = 0; i < 100; i++) {
+            dict.put("key" + i, i);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dict.writeSnapshot(Channels.newChannel(bytes), Codec.STRING, Codec.INTEGER);
+        byte[] snapshot = bytes.toByteArray();
+        DictionaryImpl<String, Integer> restored = DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(snapshot)), Codec.STRING, Codec.INTEGER);
+        Assertions.assertEquals(dict, restored);
+        Assertions.assertEquals(dict.maxProbeLength(), restored.maxProbeLength());
+        Assertions.assertEquals(new ArrayList<>(dict.keySet()), new ArrayList<>(restored.keySet()));
+        restored.put("key100", 100);
+        Assertions.assertEquals(100, restored.remove("key100"));
+        Assertions.assertEquals(dict, restored);
+
+        Assertions.assertThrows(IOException.class, () -> DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(snapshot)), Codec.STRING, Codec.INTEGER,
+                HashSpreader.seeded(42)));
+        Assertions.assertThrows(IOException.class, () -> DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(snapshot, 0, snapshot.length - 1)),
+                Codec.STRING, Codec.INTEGER));
+        snapshot[snapshot.length / 2] ^= 1;
+        Assertions.assertThrows(IOException.class, () -> DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(snapshot)), Codec.STRING, Codec.INTEGER));
+    }
+
+    @Test
+    public void testCapacityControl() {
+        Map<CountingKey, Integer> source = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            source.put(new CountingKey(i), i);
+        }
+        source.keySet().forEach(key -> key.hashCodeCalls = 0);
+        DictionaryImpl<CountingKey, Integer> dict = new DictionaryImpl<>();
+        dict.putAll(source);
+        Assertions.assertTrue(source.keySet().stream().allMatch(key -> key.hashCodeCalls == 1));
+        Assertions.assertEquals(2048, dict.capacity());
+        Assertions.assertEquals(source, dict);
+
+        // the table is resized once for the current mappings and the added ones together
+        DictionaryImpl<Integer, Integer> filled = new DictionaryImpl<>();
+        Map<Integer, Integer> added = new HashMap<>();
+        for (int i = 0; i < 13_000; i++) {
+            (i < 3000 ? filled : added).put(i, i);
+        }
+        filled.enableStatistics();
+        filled.putAll(added);
+        Assertions.assertEquals(1, filled.statistics().rehashCount());
+        Assertions.assertEquals(32768, filled.capacity());
+        Assertions.assertEquals(13_000, filled.size());
+
+        DictionaryImpl<Integer, Integer> reserved = new DictionaryImpl<>();
+        reserved.ensureCapacity(1000);
+        Assertions.assertEquals(2048, reserved.capacity());
+        for (int i = 0; i < 1000; i++) {
+            reserved.put(i, i);
+        }
+        Assertions.assertEquals(2048, reserved.capacity());
+        for (int i = 0; i < 950; i++) {
+            reserved.remove(i);
+        }
+        Assertions.assertEquals(128, reserved.capacity());
+        reserved.trimToSize();
+        Assertions.assertEquals(128, reserved.capacity());
+        reserved.remove(999);
+        reserved.remove(998);
+        reserved.trimToSize();
+        Assertions.assertEquals(128, reserved.capacity());
+        reserved.remove(997);
+        reserved.trimToSize();
+        Assertions.assertEquals(64, reserved.capacity());
+        reserved.clear();
+        reserved.trimToSize();
+        Assertions.assertEquals(16, reserved.capacity());
+    }
+
+    @Test
+    public void testShrinkPolicies() throws IOException {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShrinkPolicy.toLoadFactor(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new DictionaryImpl<Integer, Integer>(0, 0.25, 0.75, HashSpreader.MURMUR,
+                    DictionaryImpl.ResizeMode.AT_ONCE, null);
+        });
+        // with these load factors a halved table is loaded almost up to the max load factor
+        DictionaryImpl<Integer, Integer> never = new DictionaryImpl<>(0, 0.4, 0.75, HashSpreader.MURMUR,
+                DictionaryImpl.ResizeMode.AT_ONCE, ShrinkPolicy.NEVER);
+        DictionaryImpl<Integer, Integer> halve = new DictionaryImpl<>(0, 0.4, 0.75, HashSpreader.MURMUR,
+                DictionaryImpl.ResizeMode.AT_ONCE, ShrinkPolicy.HALVE);
+        DictionaryImpl<Integer, Integer> toHalf = new DictionaryImpl<>(0, 0.4, 0.75, HashSpreader.MURMUR,
+                DictionaryImpl.ResizeMode.AT_ONCE, ShrinkPolicy.toLoadFactor(0.5));
+        List<DictionaryImpl<Integer, Integer>> dicts = List.of(never, halve, toHalf);
+        for (int i = 0; i < 3000; i++) {
+            for (DictionaryImpl<Integer, Integer> dict : dicts) {
+                dict.put(i, i);
+            }
+        }
+        for (DictionaryImpl<Integer, Integer> dict : dicts) {
+            Assertions.assertEquals(4096, dict.capacity());
+        }
+        // HALVE shrinks the table when the halved one is loaded below 0.75, that is at 1535 mappings
+        for (int i = 0; i < 1465; i++) {
+            for (DictionaryImpl<Integer, Integer> dict : dicts) {
+                dict.remove(i);
+            }
+        }
+        Assertions.assertEquals(4096, never.capacity());
+        Assertions.assertEquals(2048, halve.capacity());
+        Assertions.assertEquals(4096, toHalf.capacity());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        toHalf.writeSnapshot(Channels.newChannel(bytes), Codec.INTEGER, Codec.INTEGER);
+        DictionaryImpl<Integer, Integer> restored = DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), Codec.INTEGER, Codec.INTEGER);
+        List<DictionaryImpl<Integer, Integer>> changing = List.of(halve, toHalf, restored);
+        for (DictionaryImpl<Integer, Integer> dict : changing) {
+            dict.enableStatistics();
+        }
+        // the size moving back and forth by one resizes the halved table every time
+        for (int i = 0; i < 100; i++) {
+            for (DictionaryImpl<Integer, Integer> dict : changing) {
+                dict.put(i, i);
+                dict.remove(i);
+            }
+        }
+        Assertions.assertEquals(200, halve.statistics().rehashCount());
+        Assertions.assertEquals(0, toHalf.statistics().rehashCount());
+        Assertions.assertEquals(0, restored.statistics().rehashCount());
+
+        // the load falls to 0.25 at 1024 mappings, the table shrinks to the load of at most 0.5 at once
+        for (int i = 1465; i < 1976; i++) {
+            toHalf.remove(i);
+        }
+        Assertions.assertEquals(1024, toHalf.size());
+        Assertions.assertEquals(2048, toHalf.capacity());
+        for (int i = 0; i < 1000; i++) {
+            toHalf.put(i, i);
+            toHalf.remove(i);
+        }
+        Assertions.assertEquals(2048, toHalf.capacity());
+        Assertions.assertEquals(1, toHalf.statistics().rehashCount());
+
+        // a policy asking for a table smaller than the mappings is clamped to keep a free slot
+        for (DictionaryImpl.ResizeMode mode : DictionaryImpl.ResizeMode.values()) {
+            DictionaryImpl<Integer, Integer> greedy = new DictionaryImpl<>(0, 0.5, 1.0, HashSpreader.MURMUR,
+                    mode, (size, capacity, minLoadFactor, maxLoadFactor) -> 1);
+            Map<Integer, Integer> correct = new HashMap<>();
+            for (int i = 0; i < 1000; i++) {
+                greedy.put(i, i);
+                correct.put(i, i);
+                if (i % 3 == 0) {
+                    greedy.remove(i / 2);
+                    correct.remove(i / 2);
+                    Assertions.assertTrue(greedy.size() < greedy.capacity());
+                }
+            }
+            Assertions.assertEquals(correct, greedy);
+        }
+    }
+
+    @Test
+    public void testStoredHashes() {
+        // all the keys have the same home slot, but different hash codes
+        Dictionary<CountingKey, Integer> collided = new DictionaryImpl<>(1024, 0.25, 0.75, hash -> hash);
+        List<CountingKey> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            keys.add(new CountingKey(i * 1024));
+            collided.put(keys.get(i), i);
+        }
+        for (int i = 0; i < 500; i++) {
+            Assertions.assertEquals(i, collided.get(new CountingKey(i * 1024)));
+            Assertions.assertNull(collided.get(new CountingKey(i * 1024 + 2048 * 1024)));
+        }
+        Assertions.assertEquals(500, keys.stream().mapToInt(key -> key.equalsCalls).sum());
+
+        Dictionary<CountingKey, Integer> growing = new DictionaryImpl<>();
+        keys.clear();
+        for (int i = 0; i < 10_000; i++) {
+            keys.add(new CountingKey(i));
+            growing.put(keys.get(i), i);
+        }
+        Assertions.assertTrue(keys.stream().allMatch(key -> key.hashCodeCalls == 1));
+    }
+
+    @Test
+    public void testStatistics() {
+        DictionaryImpl<Integer, Integer> dict = new DictionaryImpl<>(16, 0.25, 0.75, hash -> hash);
+        Assertions.assertNull(dict.statistics());
+        dict.enableStatistics();
+        DictionaryStatistics empty = dict.statistics();
+        Assertions.assertEquals(16, empty.capacity());
+        Assertions.assertEquals(0, empty.occupiedSlots());
+        Assertions.assertEquals(0, empty.maxProbeLength());
+        Assertions.assertEquals(0, empty.averageProbeLength());
+        Assertions.assertEquals(0, empty.rehashCount());
+
+        // the keys 0, 64, 128 share the home slot 0 and take the slots 0, 1, 2, the key 1 probes the slots 1, 2, 3
+        for (int key : new int[]{0, 64, 128, 1}) {
+            dict.put(key, key);
+        }
+        DictionaryStatistics collided = dict.statistics();
+        Assertions.assertArrayEquals(new int[]{1, 1, 2}, collided.probeLengthCounts());
+        Assertions.assertEquals(3, collided.maxProbeLength());
+        Assertions.assertEquals(2.25, collided.averageProbeLength());
+        Assertions.assertEquals(4, collided.liveSlots());
+        Assertions.assertEquals(0, collided.tombstoneSlots());
+
+        for (int i = 1000; i < 1012; i++) {
+            dict.put(i, i);
+        }
+        DictionaryStatistics grown = dict.statistics();
+        Assertions.assertEquals(1, grown.rehashCount());
+        Assertions.assertEquals(32, grown.capacity());
+        Assertions.assertEquals(16, grown.liveSlots());
+        Assertions.assertEquals(16, Arrays.stream(grown.probeLengthCounts()).sum());
+        Assertions.assertEquals(dict.maxProbeLength(), grown.maxProbeLength());
+        Assertions.assertTrue(grown.rehashNanos() > 0);
+        // the snapshot does not change with the dictionary
+        dict.clear();
+        Assertions.assertEquals(16, grown.liveSlots());
+        dict.disableStatistics();
+        Assertions.assertNull(dict.statistics());
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        List<String> result = new ArrayList<>(values);
+        result.sort(Comparator.naturalOrder());
+        return result;
+    }
+
+    private static class CountingKey {
+        private final int id;
+        private int hashCodeCalls = 0;
+        private int equalsCalls = 0;
+
+        public CountingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            hashCodeCalls++;
+            return id;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            equalsCalls++;
+            return other instanceof CountingKey && id == ((CountingKey) other).id;
+        }
+    }
+
+    private static class FixedHashKey {
+        private final int hash;
+        private final String name;
+
+        public FixedHashKey(int hash, String name) {
+            this.hash = hash;
+            this.name = name;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof FixedHashKey)) {
+                return false;
+            }
+            return hash == ((FixedHashKey) other).hash && name.equals(((FixedHashKey) other).name);
+        }
+    }
+
 }
@@ -3,8 +3,14 @@ package ru.hse.java.util;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 public class DictionaryImplStressTest {
     private static final int SEED = 314;
@@ -147,6 +153,217 @@ public class DictionaryImplStressTest {
         }
     }
 
+    @Test
+    public void testStressChurnKeepsProbesShort() {
+        DictionaryImpl<Integer, String> testedDict = new DictionaryImpl<>();
+        Map<Integer, String> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        fillMaps(testedDict, correctDict, random);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(1000);
+            if (correctDict.containsKey(key)) {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            } else {
+                String value = makeString(random);
+                Assertions.assertEquals(correctDict.put(key, value), testedDict.put(key, value));
+            }
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertTrue(testedDict.maxProbeLength() <= 32);
+    }
+
+    @Test
+    public void testStressIteratorRemove() {
+        Dictionary<Integer, String> testedDict = new DictionaryImpl<>(16, 0.0, 0.75);
+        Map<Integer, String> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        fillMaps(testedDict, correctDict, random);
+        Iterator<Entry<Integer, String>> iterator = testedDict.entrySet().iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            Entry<Integer, String> entry = iterator.next();
+            Assertions.assertEquals(correctDict.get(entry.getKey()), entry.getValue());
+            visited++;
+            if (random.nextBoolean()) {
+                iterator.remove();
+                correctDict.remove(entry.getKey());
+            }
+        }
+        Assertions.assertEquals(1000, visited);
+        Assertions.assertEquals(correctDict, testedDict);
+    }
+
+    @Test
+    public void testStressIncrementalResize() {
+        DictionaryImpl<Integer, String> testedDict = new DictionaryImpl<>(
+                1, 0.25, 0.75, HashSpreader.MURMUR, DictionaryImpl.ResizeMode.INCREMENTAL
+        );
+        Map<Integer, String> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                String value = makeString(random);
+                Assertions.assertEquals(correctDict.put(key, value), testedDict.put(key, value));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+            if (i % 10_000 == 0) {
+                Assertions.assertEquals(correctDict, testedDict);
+                Assertions.assertEquals(testedDict, correctDict);
+            }
+        }
+    }
+
+    @Test
+    public void testStressParallelStreams() {
+        DictionaryImpl<Integer, Integer> testedDict = new DictionaryImpl<>(
+                16, 0.25, 0.75, HashSpreader.MURMUR, DictionaryImpl.ResizeMode.INCREMENTAL
+        );
+        Map<Integer, Integer> correctDict = new HashMap<>();
+        for (int i = 0; i < 300_000; i++) {
+            testedDict.put(i, 2 * i);
+            correctDict.put(i, 2 * i);
+        }
+        for (int i = 0; i < 300_000; i += 3) {
+            testedDict.remove(i);
+            correctDict.remove(i);
+        }
+
+        Spliterator<Integer> whole = testedDict.keySet().spliterator();
+        Assertions.assertTrue(whole.hasCharacteristics(Spliterator.SIZED));
+        Assertions.assertEquals(correctDict.size(), whole.getExactSizeIfKnown());
+        Spliterator<Integer> prefix = whole.trySplit();
+        Assertions.assertNotNull(prefix);
+        long[] counts = new long[2];
+        prefix.forEachRemaining(key -> counts[0]++);
+        whole.forEachRemaining(key -> counts[1]++);
+        Assertions.assertTrue(counts[0] > 0 && counts[1] > 0);
+        Assertions.assertEquals(correctDict.size(), counts[0] + counts[1]);
+
+        Assertions.assertEquals(
+                correctDict.keySet().stream().mapToLong(Integer::longValue).sum(),
+                testedDict.keySet().parallelStream().mapToLong(Integer::longValue).sum()
+        );
+        Assertions.assertEquals(
+                correctDict.values().stream().mapToLong(Integer::longValue).sum(),
+                testedDict.values().parallelStream().mapToLong(Integer::longValue).sum()
+        );
+        Assertions.assertEquals(
+                correctDict.entrySet(),
+                testedDict.entrySet().parallelStream().collect(Collectors.toSet())
+        );
+    }
+
+    @Test
+    public void testIncrementalResizeMigrationStep() {
+        DictionaryImpl<Integer, Integer> testedDict = new DictionaryImpl<>(
+                16, 0.25, 0.75, HashSpreader.MURMUR, DictionaryImpl.ResizeMode.INCREMENTAL
+        );
+        Map<Integer, Integer> correctDict = new HashMap<>();
+        Random random = new Random(SEED);
+        int resizes = 0;
+        int checkedMigrations = 0;
+        for (int i = 0; i < 400_000; i++) {
+            // the dictionary grows and shrinks in turns
+            boolean isGrowing = i % 100_000 < 50_000;
+            Integer key = random.nextInt(50_000);
+            int capacity = testedDict.capacity();
+            int pending = testedDict.pendingMigration();
+            boolean isPut = isGrowing ? random.nextInt(4) != 0 : random.nextInt(4) == 0;
+            if (isPut) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+            if (testedDict.capacity() == capacity) {
+                int migrated = pending - testedDict.pendingMigration();
+                Assertions.assertTrue(0 <= migrated && migrated <= DictionaryImpl.MIGRATION_STEP,
+                        migrated + " mappings are migrated by an operation");
+            } else {
+                // a resize does not finish the previous migration at once
+                resizes++;
+                Assertions.assertTrue(pending <= DictionaryImpl.MIGRATION_STEP,
+                        pending + " mappings are migrated by a resize");
+                Assertions.assertEquals(testedDict.size(), testedDict.pendingMigration());
+            }
+            if (testedDict.pendingMigration() > 0 && i % 500 == 0) {
+                // a key is either in the old table or in the current one
+                checkedMigrations++;
+                List<Integer> keys = new ArrayList<>(testedDict.keySet());
+                Assertions.assertEquals(testedDict.size(), keys.size());
+                Assertions.assertEquals(correctDict.keySet(), new HashSet<>(keys));
+            }
+        }
+        Assertions.assertTrue(resizes > 10 && checkedMigrations > 10, resizes + " resizes, "
+                + checkedMigrations + " checked migrations");
+    }
+
+    @Test
+    public void testStressSnapshot() throws IOException {
+        DictionaryImpl<String, String> dict = new DictionaryImpl<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            dict.put(Integer.toString(random.nextInt()), "x".repeat(random.nextInt(100_000) == 0 ? 100_000 : 1));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        dict.writeSnapshot(Channels.newChannel(bytes), Codec.STRING, Codec.STRING);
+        DictionaryImpl<String, String> restored = DictionaryImpl.readSnapshot(
+                Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), Codec.STRING, Codec.STRING);
+        Assertions.assertEquals(dict.size(), restored.size());
+        Assertions.assertEquals(dict, restored);
+    }
+
+    @Test
+    public void testStressParallelCopy() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            DictionaryImpl.parallelCopyOf(Arrays.asList(Map.entry(1, 1), null));
+        });
+        Assertions.assertTrue(DictionaryImpl.parallelCopyOf(List.<Entry<Integer, Integer>>of()).isEmpty());
+
+        // the repeated keys are frequent, and the keys with equal hash codes form long clusters crossing the ranges
+        Random random = new Random(SEED);
+        List<Entry<GroupedKey, Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < 1000_000; i++) {
+            entries.add(new AbstractMap.SimpleEntry<>(new GroupedKey(random.nextInt(700_000)), i));
+        }
+        Map<GroupedKey, Integer> correctDict = new HashMap<>();
+        for (Entry<GroupedKey, Integer> entry : entries) {
+            correctDict.put(entry.getKey(), entry.getValue());
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DictionaryImpl<GroupedKey, Integer> dict = DictionaryImpl.parallelCopyOf(entries.spliterator(), pool);
+            Assertions.assertEquals(correctDict.size(), dict.size());
+            Assertions.assertEquals(correctDict, dict);
+            Assertions.assertEquals(dict, correctDict);
+            for (int i = 0; i < 700_000; i += 2) {
+                Assertions.assertEquals(correctDict.remove(new GroupedKey(i)), dict.remove(new GroupedKey(i)));
+            }
+            Assertions.assertEquals(correctDict, dict);
+        } finally {
+            pool.shutdown();
+        }
+        @SuppressWarnings("unchecked")
+        Entry<Integer, Integer>[] array = new Entry[100_000];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Map.entry(random.nextInt(), i);
+        }
+        Map<Integer, Integer> arrayDict = new HashMap<>();
+        for (Entry<Integer, Integer> entry : array) {
+            arrayDict.put(entry.getKey(), entry.getValue());
+        }
+        Assertions.assertEquals(arrayDict, DictionaryImpl.parallelCopyOf(array));
+    }
+
     private static class EntryComparator implements Comparator<Entry<Integer, String>> {
 
         @Override
@@ -160,6 +377,24 @@ public class DictionaryImplStressTest {
         }
     }
 
+    private static class GroupedKey {
+        private final int id;
+
+        public GroupedKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id / 16;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof GroupedKey && id == ((GroupedKey) other).id;
+        }
+    }
+
     private String makeString(Random random) {
         StringBuilder buffer = new StringBuilder();
         int length = random.nextInt(8);
@@ -0,0 +1,110 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+public class FrozenDictionaryTest {
+    private static final int SEED = 577;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FrozenDictionary<Integer, Integer>(null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new FrozenDictionary<Integer, Integer>(Map.of(), null);
+        });
+        Map<Integer, Integer> withNull = new HashMap<>();
+        withNull.put(null, 0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FrozenDictionary<>(withNull));
+        withNull.clear();
+        withNull.put(0, null);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new FrozenDictionary<>(withNull));
+
+        Dictionary<Integer, Integer> empty = new FrozenDictionary<>(Map.of());
+        Assertions.assertTrue(empty.isEmpty());
+        Assertions.assertNull(empty.get(0));
+        Assertions.assertFalse(empty.containsKey(null));
+        Assertions.assertFalse(empty.entrySet().iterator().hasNext());
+
+        Dictionary<Integer, Integer> single = new FrozenDictionary<>(Map.of(1, 2));
+        Assertions.assertEquals(2, single.get(1));
+        Assertions.assertNull(single.get(2));
+        Assertions.assertEquals(Map.of(1, 2), single);
+    }
+
+    @Test
+    public void testImmutability() {
+        Map<String, String> source = new HashMap<>(Map.of("hello", "my", "dear", "friend"));
+        Dictionary<String, String> dict = new FrozenDictionary<>(source);
+        source.put("bye", "bye");
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> dict.put("bye", "bye"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> dict.remove("hello"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> dict.putAll(source));
+        Assertions.assertThrows(UnsupportedOperationException.class, dict::clear);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> dict.keySet().remove("hello"));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> dict.values().clear());
+        Iterator<Entry<String, String>> iterator = dict.entrySet().iterator();
+        Entry<String, String> entry = iterator.next();
+        Assertions.assertThrows(UnsupportedOperationException.class, iterator::remove);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> entry.setValue("bye"));
+        Assertions.assertEquals(Map.of("hello", "my", "dear", "friend"), dict);
+    }
+
+    @Test
+    public void testEqualHashes() {
+        Map<Integer, Integer> source = new HashMap<>();
+        for (int i = 0; i < 10_000; i++) {
+            source.put(i, -i);
+        }
+        // every hundred keys have the same spread hash code, so most of them go to the overflow
+        Dictionary<Integer, Integer> dict = new FrozenDictionary<>(source, hash -> HashSpreader.mix(hash / 100));
+        Assertions.assertEquals(source, dict);
+        Assertions.assertEquals(dict, source);
+        for (int i = -10_000; i < 20_000; i++) {
+            Assertions.assertEquals(source.get(i), dict.get(i));
+            Assertions.assertEquals(source.containsKey(i), dict.containsKey(i));
+        }
+        Dictionary<String, Integer> strings = new FrozenDictionary<>(Map.of("Aa", 1, "BB", 2, "AaAa", 3, "BBBB", 4));
+        Assertions.assertEquals(2, strings.get("BB"));
+        Assertions.assertEquals(3, strings.get("AaAa"));
+        Assertions.assertNull(strings.get("AaBB"));
+    }
+
+    @Test
+    public void testStressLookups() throws InterruptedException {
+        Map<Integer, Integer> source = new HashMap<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            source.put(random.nextInt(), i);
+        }
+        Dictionary<Integer, Integer> dict = new FrozenDictionary<>(source);
+        Assertions.assertEquals(source, dict);
+        Assertions.assertEquals(dict, source);
+        Assertions.assertEquals(source.hashCode(), dict.hashCode());
+        // the readers share the dictionary without synchronization
+        Thread[] readers = new Thread[4];
+        boolean[] isCorrect = new boolean[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            int reader = i;
+            readers[i] = new Thread(() -> {
+                Random readerRandom = new Random(SEED + reader);
+                boolean correct = true;
+                for (int j = 0; j < 1000_000; j++) {
+                    Integer key = readerRandom.nextInt();
+                    correct &= Objects.equals(source.get(key), dict.get(key));
+                }
+                isCorrect[reader] = correct;
+            });
+            readers[i].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        for (boolean correct : isCorrect) {
+            Assertions.assertTrue(correct);
+        }
+    }
+}
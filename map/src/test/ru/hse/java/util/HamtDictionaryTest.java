@@ -0,0 +1,119 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+public class HamtDictionaryTest {
+    private static final int SEED = 881;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HamtDictionary<Integer, Integer>(null));
+        HamtDictionary<Integer, Integer> dict = new HamtDictionary<>();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.plus(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        Assertions.assertTrue(dict.minus(0).isEmpty());
+        Assertions.assertFalse(dict.keySet().iterator().hasNext());
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<Integer, String> dict = new HamtDictionary<>();
+        dict.put(1, "hello");
+        dict.put(2, "my");
+        dict.put(3, "friend");
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        Iterator<String> values = dict.values().iterator();
+        dict.put(4, "dear");
+        Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testVersions() {
+        HamtDictionary<String, Integer> empty = new HamtDictionary<>();
+        HamtDictionary<String, Integer> first = empty.plus("hello", 1);
+        HamtDictionary<String, Integer> second = first.plus("friend", 2).plus("hello", 3);
+        HamtDictionary<String, Integer> third = second.minus("hello");
+        Assertions.assertEquals(Map.of(), empty);
+        Assertions.assertEquals(Map.of("hello", 1), first);
+        Assertions.assertEquals(Map.of("hello", 3, "friend", 2), second);
+        Assertions.assertEquals(Map.of("friend", 2), third);
+
+        HamtDictionary<String, Integer> snapshot = second.snapshot();
+        second.put("dear", 4);
+        second.remove("friend");
+        snapshot.put("bye", 5);
+        Assertions.assertEquals(Map.of("hello", 3, "dear", 4), second);
+        Assertions.assertEquals(Map.of("hello", 3, "friend", 2, "bye", 5), snapshot);
+        Assertions.assertEquals(Map.of("hello", 1), first);
+    }
+
+    @Test
+    public void testEqualHashes() {
+        HamtDictionary<Integer, Integer> dict = new HamtDictionary<>(hash -> hash & 0x8000000f);
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, i);
+        }
+        HamtDictionary<Integer, Integer> snapshot = dict.snapshot();
+        for (int i = 0; i < 1000; i += 2) {
+            Assertions.assertEquals(i, dict.remove(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i % 2 == 1 ? i : null, dict.get(i));
+            Assertions.assertEquals(i, snapshot.get(i));
+        }
+        Assertions.assertEquals(500, dict.size());
+        Assertions.assertEquals(1000, snapshot.size());
+        Assertions.assertEquals(500, dict.keySet().stream().distinct().count());
+    }
+
+    @Test
+    public void testStressSnapshots() {
+        HamtDictionary<Integer, Integer> testedDict = new HamtDictionary<>();
+        Map<Integer, Integer> correctDict = new HashMap<>();
+        List<HamtDictionary<Integer, Integer>> snapshots = new ArrayList<>();
+        List<Map<Integer, Integer>> copies = new ArrayList<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+            if (i % 50_000 == 0) {
+                snapshots.add(testedDict.snapshot());
+                copies.add(new HashMap<>(correctDict));
+            }
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+        for (int i = 0; i < snapshots.size(); i++) {
+            Assertions.assertEquals(copies.get(i), snapshots.get(i));
+        }
+    }
+}
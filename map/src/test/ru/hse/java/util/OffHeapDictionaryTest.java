@@ -0,0 +1,201 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.Map.Entry;
+
+public class OffHeapDictionaryTest {
+    private static final int SEED = 314;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new OffHeapDictionary<>(null, Codec.INTEGER);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new OffHeapDictionary<>(Codec.STRING, Codec.INTEGER, 0);
+        });
+        Dictionary<String, String> dict = new OffHeapDictionary<>(Codec.STRING, Codec.STRING, 8);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put("", null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertFalse(dict.containsKey(0));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        Assertions.assertNull(dict.put("", ""));
+        String longValue = "long value".repeat(100);
+        Assertions.assertEquals("", dict.put("", longValue));
+        Assertions.assertEquals(longValue, dict.get(""));
+    }
+
+    @Test
+    public void testLoneSurrogateKeys() {
+        Dictionary<String, Integer> dict = new OffHeapDictionary<>(Codec.STRING, Codec.INTEGER);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put("\uD800", 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put("a\uDC00b", 0));
+        Assertions.assertNull(dict.put("\uD83D\uDE00", 1));
+        Assertions.assertNull(dict.put("?", 2));
+        Assertions.assertFalse(dict.containsKey("\uD801"));
+        Assertions.assertNull(dict.get("\uD800"));
+        Assertions.assertNull(dict.remove("\uDE00"));
+        Assertions.assertEquals(Map.of("\uD83D\uDE00", 1, "?", 2), dict);
+    }
+
+    @Test
+    public void testByteArrayKeys() {
+        Dictionary<byte[], Integer> dict = new OffHeapDictionary<>(Codec.BYTES, Codec.INTEGER);
+        byte[] key = {1, 2, 3};
+        dict.put(key, 1);
+        key[0] = 0;
+        Assertions.assertEquals(1, dict.get(new byte[]{1, 2, 3}));
+        Assertions.assertNull(dict.get(key));
+        Assertions.assertEquals(1, dict.put(new byte[]{1, 2, 3}, 2));
+        Assertions.assertEquals(1, dict.size());
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, dict.keySet().iterator().next());
+    }
+
+    @Test
+    public void testValuesAreDecodedLazily() {
+        int[] decoded = {0};
+        Codec<String> countingCodec = new Codec<>() {
+            @Override
+            public byte[] encode(String value) {
+                return Codec.STRING.encode(value);
+            }
+
+            @Override
+            public String decode(ByteBuffer buffer) {
+                decoded[0]++;
+                return Codec.STRING.decode(buffer);
+            }
+        };
+        Dictionary<Integer, String> dict = new OffHeapDictionary<>(Codec.INTEGER, countingCodec);
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, Integer.toString(i));
+        }
+        Assertions.assertEquals(0, decoded[0]);
+        int sum = 0;
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            sum += entry.getKey();
+        }
+        Assertions.assertEquals(999 * 1000 / 2, sum);
+        Assertions.assertTrue(dict.containsKey(7));
+        Assertions.assertEquals(0, decoded[0]);
+        Assertions.assertEquals("7", dict.get(7));
+        Assertions.assertEquals(1, decoded[0]);
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<String, String> dict = new OffHeapDictionary<>(Codec.STRING, Codec.STRING);
+        dict.put("1", "hello");
+        dict.put("2", "my");
+        dict.put("3", "friend");
+        Iterator<String> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        String removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<String, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+            Assertions.assertTrue(entry.getValue().endsWith("!"));
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        Assertions.assertEquals(new HashSet<>(dict.entrySet()), new HashMap<>(dict).entrySet());
+        Iterator<String> values = dict.values().iterator();
+        dict.put("4", "dear");
+        Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<String, String> testedDict = new OffHeapDictionary<>(Codec.STRING, Codec.STRING, 1 << 12);
+        Map<String, String> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            String key = Integer.toString(random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100));
+            String value = "v".repeat(random.nextInt(4)) + i;
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, value), testedDict.put(key, value));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testIteratorRemoveInWrappedCluster() {
+        Dictionary<Integer, Integer> dict = new OffHeapDictionary<>(Codec.INTEGER, Codec.INTEGER);
+        // the keys make a cluster which wraps from the end of the index of 16 slots to its beginning
+        for (int key : new int[]{3, 0, 53, 4}) {
+            dict.put(key, key);
+        }
+        List<Integer> visited = new ArrayList<>();
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        while (iterator.hasNext()) {
+            Integer key = iterator.next();
+            visited.add(key);
+            if (key == 3) {
+                iterator.remove();
+            }
+        }
+        Assertions.assertEquals(Set.of(3, 0, 53, 4), new HashSet<>(visited));
+        Assertions.assertEquals(4, visited.size());
+        Assertions.assertEquals(Map.of(0, 0, 53, 53, 4, 4), dict);
+    }
+
+    @Test
+    public void testStressIteratorRemove() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < 1000; round++) {
+            Dictionary<Integer, Integer> testedDict = new OffHeapDictionary<>(Codec.INTEGER, Codec.INTEGER);
+            Map<Integer, Integer> correctDict = new HashMap<>();
+            int count = random.nextInt(12);
+            while (correctDict.size() < count) {
+                int key = random.nextInt(1000);
+                correctDict.put(key, key);
+                testedDict.put(key, key);
+            }
+            Set<Integer> visited = new HashSet<>();
+            Iterator<Integer> iterator = testedDict.keySet().iterator();
+            while (iterator.hasNext()) {
+                Integer key = iterator.next();
+                Assertions.assertTrue(visited.add(key));
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                    correctDict.remove(key);
+                }
+            }
+            Assertions.assertEquals(count, visited.size());
+            Assertions.assertEquals(correctDict, testedDict);
+        }
+    }
+
+    @Test
+    public void testDeadRecordsAreCompacted() {
+        OffHeapDictionary<Integer, String> dict = new OffHeapDictionary<>(Codec.INTEGER, Codec.STRING, 1 << 12);
+        for (int i = 0; i < 1000_000; i++) {
+            dict.put(i % 100, Integer.toString(i));
+        }
+        Assertions.assertTrue(dict.offHeapBytes() <= 4 * (1 << 12), dict.offHeapBytes() + " bytes");
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertEquals(Integer.toString(1000_000 - 100 + i), dict.get(i));
+        }
+        dict.clear();
+        Assertions.assertEquals(0, dict.offHeapBytes());
+    }
+}
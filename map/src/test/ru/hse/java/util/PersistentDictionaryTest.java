@@ -0,0 +1,175 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.Map.Entry;
+
+public class PersistentDictionaryTest {
+    private static final int SEED = 314;
+
+    @TempDir
+    Path directory;
+
+    private PersistentDictionary<String, Integer> open() throws IOException {
+        return new PersistentDictionary<>(directory, Codec.STRING, Codec.INTEGER);
+    }
+
+    @Test
+    public void testExtremeCases() throws IOException {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PersistentDictionary<>(null, Codec.STRING, Codec.INTEGER);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new PersistentDictionary<>(directory, Codec.STRING, null);
+        });
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put("", null));
+            Assertions.assertFalse(dict.containsKey(null));
+            Assertions.assertFalse(dict.containsKey(0));
+            Assertions.assertNull(dict.get(null));
+            Assertions.assertNull(dict.remove(null));
+            Assertions.assertNull(dict.put("", 0));
+            Assertions.assertEquals(0, dict.get(""));
+        }
+        Files.write(directory.resolve("dictionary.log"), new byte[100]);
+        Assertions.assertThrows(IOException.class, this::open);
+    }
+
+    @Test
+    public void testLoneSurrogateKeys() throws IOException {
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put("\uD800", 0));
+            Assertions.assertNull(dict.put("\uD83D\uDE00", 1));
+            Assertions.assertNull(dict.put("?", 2));
+            Assertions.assertFalse(dict.containsKey("\uD801"));
+            Assertions.assertNull(dict.get("\uD800"));
+        }
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertEquals(Map.of("\uD83D\uDE00", 1, "?", 2), dict);
+        }
+    }
+
+    @Test
+    public void testViewsWriteThrough() throws IOException {
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            dict.put("hello", 1);
+            dict.put("my", 2);
+            dict.put("friend", 3);
+            Iterator<String> iterator = dict.keySet().iterator();
+            Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+            String removed = iterator.next();
+            iterator.remove();
+            Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+            Assertions.assertEquals(2, dict.size());
+            Assertions.assertFalse(dict.containsKey(removed));
+            for (Entry<String, Integer> entry : dict.entrySet()) {
+                entry.setValue(entry.getValue() * 10);
+            }
+            Assertions.assertTrue(dict.values().stream().allMatch(value -> value % 10 == 0));
+            Iterator<Integer> values = dict.values().iterator();
+            dict.put("dear", 4);
+            Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        }
+    }
+
+    @Test
+    public void testStressReopen() throws IOException {
+        Map<String, Integer> correctDict = new HashMap<>();
+        Random random = new Random(SEED);
+        for (int session = 0; session < 5; session++) {
+            try (PersistentDictionary<String, Integer> testedDict = open()) {
+                Assertions.assertEquals(correctDict, testedDict);
+                for (int i = 0; i < 20_000; i++) {
+                    String key = Integer.toString(random.nextInt(session % 2 == 0 ? 10_000 : 100));
+                    int type = random.nextInt(3);
+                    if (type == 0) {
+                        Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+                    } else if (type == 1) {
+                        Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+                    } else {
+                        Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+                    }
+                    Assertions.assertEquals(correctDict.size(), testedDict.size());
+                }
+                Assertions.assertEquals(correctDict, testedDict);
+            }
+        }
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            dict.clear();
+            Assertions.assertTrue(dict.isEmpty());
+            dict.put("hello", 1);
+        }
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertEquals(Map.of("hello", 1), dict);
+        }
+    }
+
+    @Test
+    public void testRecoverUnindexedRecords() throws IOException {
+        Path index = directory.resolve("dictionary.index");
+        Path staleIndex = directory.resolve("stale.index");
+        Map<String, Integer> correctDict = new HashMap<>();
+        PersistentDictionary<String, Integer> dict = open();
+        for (int i = 0; i < 1000; i++) {
+            dict.put(Integer.toString(i), i);
+            correctDict.put(Integer.toString(i), i);
+        }
+        Files.copy(index, staleIndex);
+        for (int i = 0; i < 5000; i += 3) {
+            dict.put(Integer.toString(i), -i);
+            correctDict.put(Integer.toString(i), -i);
+            dict.remove(Integer.toString(i + 1));
+            correctDict.remove(Integer.toString(i + 1));
+        }
+        // the process dies after the log was written, but the index is left behind
+        Files.copy(staleIndex, index, StandardCopyOption.REPLACE_EXISTING);
+        try (PersistentDictionary<String, Integer> recovered = open()) {
+            Assertions.assertEquals(correctDict, recovered);
+            Assertions.assertEquals(correctDict.size(), recovered.size());
+        }
+        Files.delete(index);
+        try (PersistentDictionary<String, Integer> rebuilt = open()) {
+            Assertions.assertEquals(correctDict, rebuilt);
+        }
+    }
+
+    @Test
+    public void testRecoverTornRecord() throws IOException {
+        Path log = directory.resolve("dictionary.log");
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            dict.put("hello", 1);
+            dict.put("my", 2);
+        }
+        long length = Files.size(log);
+        // the process dies in the middle of appending a record
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.allocate(10).putInt(0, 6).putInt(4, 4));
+        }
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertEquals(Map.of("hello", 1, "my", 2), dict);
+            Assertions.assertEquals(length, Files.size(log));
+            dict.put("friend", 3);
+        }
+        // a complete record with a wrong checksum is cut off as well
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(1).put(0, (byte) 'F'), length + 8);
+        }
+        Path index = directory.resolve("dictionary.index");
+        Files.delete(index);
+        try (PersistentDictionary<String, Integer> dict = open()) {
+            Assertions.assertEquals(Map.of("hello", 1, "my", 2), dict);
+            Assertions.assertEquals(length, Files.size(log));
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Tests {@link IntDictionaryImpl} and {@link LongDictionaryImpl} through their primitive methods,
+ * the table behind them is the same, so every case runs for both key types.
+ */
+public class PrimitiveKeyDictionaryTest {
+    private static final int SEED = 314;
+
+    /**
+     * The dictionary with the keys of one primitive type, the keys are passed widened to long.
+     */
+    private enum KeyKind {
+        INT(Integer.MIN_VALUE, Integer.MAX_VALUE) {
+            @Override
+            Dictionary<?, String> create(int capacity, double minLoadFactor, double maxLoadFactor) {
+                return new IntDictionaryImpl<>(capacity, minLoadFactor, maxLoadFactor);
+            }
+
+            @Override
+            Object box(long key) {
+                return (int) key;
+            }
+
+            @Override
+            Object foreignKey(long key) {
+                return key;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String put(Dictionary<?, String> dict, long key, String value) {
+                return ((IntDictionary<String>) dict).putInt((int) key, value);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String get(Dictionary<?, String> dict, long key) {
+                return ((IntDictionary<String>) dict).getInt((int) key);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            boolean contains(Dictionary<?, String> dict, long key) {
+                return ((IntDictionary<String>) dict).containsIntKey((int) key);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String remove(Dictionary<?, String> dict, long key) {
+                return ((IntDictionary<String>) dict).removeInt((int) key);
+            }
+        },
+        LONG(Long.MIN_VALUE, Long.MAX_VALUE) {
+            @Override
+            Dictionary<?, String> create(int capacity, double minLoadFactor, double maxLoadFactor) {
+                return new LongDictionaryImpl<>(capacity, minLoadFactor, maxLoadFactor);
+            }
+
+            @Override
+            Object box(long key) {
+                return key;
+            }
+
+            @Override
+            Object foreignKey(long key) {
+                return (int) key;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String put(Dictionary<?, String> dict, long key, String value) {
+                return ((LongDictionary<String>) dict).putLong(key, value);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String get(Dictionary<?, String> dict, long key) {
+                return ((LongDictionary<String>) dict).getLong(key);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            boolean contains(Dictionary<?, String> dict, long key) {
+                return ((LongDictionary<String>) dict).containsLongKey(key);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            String remove(Dictionary<?, String> dict, long key) {
+                return ((LongDictionary<String>) dict).removeLong(key);
+            }
+        };
+
+        private final long min;
+        private final long max;
+
+        KeyKind(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        Dictionary<?, String> create() {
+            return create(16, 0.25, 0.75);
+        }
+
+        abstract Dictionary<?, String> create(int capacity, double minLoadFactor, double maxLoadFactor);
+
+        abstract Object box(long key);
+
+        /**
+         * @return the boxed number of the other key type, the dictionary never contains it.
+         */
+        abstract Object foreignKey(long key);
+
+        abstract String put(Dictionary<?, String> dict, long key, String value);
+
+        abstract String get(Dictionary<?, String> dict, long key);
+
+        abstract boolean contains(Dictionary<?, String> dict, long key);
+
+        abstract String remove(Dictionary<?, String> dict, long key);
+    }
+
+    /**
+     * The load factors used by the stress tests, the table is shrunk to the max load factor by the second pair
+     * unless the shrink is guarded.
+     */
+    private static Stream<Arguments> kindsAndLoadFactors() {
+        double[][] loadFactors = {{0.25, 0.75}, {0.5, 1.0}, {0.0, 0.5}, {0.4, 0.75}};
+        return Arrays.stream(KeyKind.values())
+                .flatMap(kind -> Arrays.stream(loadFactors).map(factors -> Arguments.of(kind, factors[0], factors[1])));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, String> asMap(Dictionary<?, String> dict) {
+        return (Map<Object, String>) dict;
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testEmptyDictionary(KeyKind kind) {
+        Dictionary<?, String> dict = kind.create();
+        Assertions.assertEquals(0, dict.size());
+        Assertions.assertFalse(kind.contains(dict, 0));
+        Assertions.assertFalse(dict.containsKey(kind.box(0)));
+        Assertions.assertNull(kind.get(dict, 1));
+        Assertions.assertNull(kind.remove(dict, 1));
+        Assertions.assertTrue(dict.keySet().isEmpty());
+        Assertions.assertTrue(dict.values().isEmpty());
+        Assertions.assertTrue(dict.entrySet().isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testExtremeCases(KeyKind kind) {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> kind.create(-1, 0.25, 0.75));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> kind.create(16, 0.75, 0.75));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> kind.create(16, 0.25, 1.25));
+        Dictionary<?, String> dict = kind.create(0, 0.25, 0.75);
+        Map<Object, String> map = asMap(dict);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> kind.put(dict, 0, null));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(null, "null"));
+        Assertions.assertNull(kind.put(dict, 0, "zero"));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertFalse(dict.containsKey(kind.foreignKey(0)));
+        Assertions.assertNull(dict.get("0"));
+        Assertions.assertNull(dict.remove(null));
+        Assertions.assertNull(dict.remove(kind.foreignKey(0)));
+        Assertions.assertEquals(Map.of(kind.box(0), "zero"), dict);
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testPrimitiveAndBoxedMethodsAgree(KeyKind kind) {
+        Dictionary<?, String> dict = kind.create();
+        Map<Object, String> map = asMap(dict);
+        Assertions.assertNull(kind.put(dict, kind.min, "min"));
+        Assertions.assertNull(map.put(kind.box(kind.max), "max"));
+        Assertions.assertNull(kind.put(dict, 0, "zero"));
+        Assertions.assertEquals("zero", kind.put(dict, 0, "null"));
+        Assertions.assertEquals(3, dict.size());
+        Assertions.assertEquals("min", dict.get(kind.box(kind.min)));
+        Assertions.assertEquals("max", kind.get(dict, kind.max));
+        Assertions.assertTrue(dict.containsKey(kind.box(0)));
+        Assertions.assertEquals("null", dict.remove(kind.box(0)));
+        Assertions.assertFalse(kind.contains(dict, 0));
+        Assertions.assertEquals(Map.of(kind.box(kind.min), "min", kind.box(kind.max), "max"), dict);
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testViewsWriteThrough(KeyKind kind) {
+        Dictionary<?, String> dict = kind.create();
+        kind.put(dict, 1, "hello");
+        kind.put(dict, 2, "my");
+        kind.put(dict, 3, "friend");
+        Iterator<?> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Object removed = iterator.next();
+        iterator.remove();
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Map.Entry<?, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testConcurrentModification(KeyKind kind) {
+        Dictionary<?, String> dict = kind.create();
+        kind.put(dict, 1, "one");
+        kind.put(dict, 2, "two");
+        Iterator<?> iterator = dict.keySet().iterator();
+        iterator.next();
+        kind.put(dict, 3, "three");
+        Assertions.assertThrows(ConcurrentModificationException.class, iterator::next);
+        Assertions.assertThrows(ConcurrentModificationException.class, iterator::remove);
+        Iterator<String> values = dict.values().iterator();
+        values.next();
+        // replacing a value is not a structural modification
+        kind.put(dict, 1, "uno");
+        values.next();
+        values.remove();
+        Assertions.assertEquals(2, dict.size());
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testShrinkToMaxLoadFactor(KeyKind kind) {
+        Dictionary<?, String> dict = kind.create(16, 0.5, 1.0);
+        for (int i = 0; i <= 16; i++) {
+            kind.put(dict, i, "");
+        }
+        // halving 32 slots for 16 mappings would leave no free slot for the next insertion
+        kind.remove(dict, 0);
+        Assertions.assertNull(kind.put(dict, 17, ""));
+        Assertions.assertNull(kind.put(dict, 18, ""));
+        Assertions.assertEquals(18, dict.size());
+        for (int i = 1; i <= 18; i++) {
+            Assertions.assertTrue(kind.contains(dict, i));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(KeyKind.class)
+    public void testStridedKeys(KeyKind kind) {
+        // the keys differ only in the high bits of their int part, without mixing they would share one home slot
+        Dictionary<?, String> dict = kind.create();
+        for (int i = 0; i < 10_000; i++) {
+            kind.put(dict, i << 16, Integer.toString(i));
+        }
+        Assertions.assertEquals(10_000, dict.size());
+        for (int i = 0; i < 10_000; i++) {
+            Assertions.assertEquals(Integer.toString(i), kind.get(dict, i << 16));
+            Assertions.assertEquals(Integer.toString(i), kind.remove(dict, i << 16));
+        }
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testLongKeysWithEqualHashCodes() {
+        // Long.hashCode folds the halves of a key with xor, so all these keys have the hash code 0
+        Dictionary<?, String> dict = KeyKind.LONG.create();
+        for (long i = 0; i < 2000; i++) {
+            Assertions.assertNull(KeyKind.LONG.put(dict, i << 32 | i, Long.toString(i)));
+        }
+        Assertions.assertEquals(2000, dict.size());
+        Assertions.assertFalse(KeyKind.LONG.contains(dict, 1L << 32));
+        Assertions.assertFalse(KeyKind.LONG.contains(dict, 1));
+        for (long i = 0; i < 2000; i += 2) {
+            Assertions.assertEquals(Long.toString(i), KeyKind.LONG.remove(dict, i << 32 | i));
+        }
+        for (long i = 0; i < 2000; i++) {
+            Assertions.assertEquals(i % 2 == 0 ? null : Long.toString(i), KeyKind.LONG.get(dict, i << 32 | i));
+        }
+        Assertions.assertEquals(1000, dict.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("kindsAndLoadFactors")
+    public void testStressBasicMethods(KeyKind kind, double minLoadFactor, double maxLoadFactor) {
+        Dictionary<?, String> testedDict = kind.create(0, minLoadFactor, maxLoadFactor);
+        Map<Long, String> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 300_000; i++) {
+            // the size moves back and forth across the resize thresholds
+            long key = random.nextInt(i % 100_000 < 50_000 ? 2000 : 40) - 20;
+            String value = Integer.toString(i);
+            int type = random.nextInt(4);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.containsKey(key), kind.contains(testedDict, key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.get(key), kind.get(testedDict, key));
+            } else if (type == 2) {
+                Assertions.assertEquals(correctDict.put(key, value), kind.put(testedDict, key, value));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), kind.remove(testedDict, key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        for (Map.Entry<Long, String> entry : correctDict.entrySet()) {
+            Assertions.assertEquals(entry.getValue(), testedDict.get(kind.box(entry.getKey())));
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("kindsAndLoadFactors")
+    public void testStressIteratorRemove(KeyKind kind, double minLoadFactor, double maxLoadFactor) {
+        Random random = new Random(SEED);
+        for (int round = 0; round < 1000; round++) {
+            Dictionary<?, String> testedDict = kind.create(16, minLoadFactor, maxLoadFactor);
+            Set<Object> correctKeys = new HashSet<>();
+            int count = random.nextInt(15);
+            while (correctKeys.size() < count) {
+                long key = random.nextInt(1000);
+                correctKeys.add(kind.box(key));
+                kind.put(testedDict, key, "");
+            }
+            Set<Object> visited = new HashSet<>();
+            Iterator<?> iterator = testedDict.keySet().iterator();
+            while (iterator.hasNext()) {
+                Object key = iterator.next();
+                Assertions.assertTrue(visited.add(key));
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                    correctKeys.remove(key);
+                }
+            }
+            Assertions.assertEquals(count, visited.size());
+            Assertions.assertEquals(correctKeys, testedDict.keySet());
+        }
+    }
+}
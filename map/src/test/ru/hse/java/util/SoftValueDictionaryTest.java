@@ -0,0 +1,126 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+public class SoftValueDictionaryTest {
+    private static final int SEED = 421;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SoftValueDictionary<Integer, Integer>(-1, 0.25, 0.75);
+        });
+        Dictionary<Integer, Integer> dict = new SoftValueDictionary<>();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        Assertions.assertNull(dict.put(1, 1));
+        Assertions.assertEquals(1, dict.put(1, 2));
+        Assertions.assertEquals(Map.of(1, 2), dict);
+    }
+
+    @Test
+    public void testClearedValues() throws InterruptedException {
+        Dictionary<Integer, byte[]> dict = new SoftValueDictionary<>();
+        for (int i = 0; i < 100; i++) {
+            dict.put(i, new byte[1 << 16]);
+        }
+        // the soft references are cleared before the heap is exhausted
+        List<byte[]> ballast = new ArrayList<>();
+        try {
+            while (true) {
+                ballast.add(new byte[1 << 24]);
+            }
+        } catch (OutOfMemoryError e) {
+            ballast.clear();
+        }
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertNull(dict.get(i));
+            Assertions.assertFalse(dict.containsKey(i));
+        }
+        Assertions.assertFalse(dict.values().iterator().hasNext());
+        // a change drains the queue of the cleared values, they are enqueued by another thread after the clearing
+        dict.put(-1, new byte[0]);
+        for (int attempt = 0; attempt < 100 && dict.size() > 1; attempt++) {
+            Thread.sleep(10);
+            dict.put(-1, new byte[0]);
+        }
+        Assertions.assertEquals(1, dict.size());
+        Assertions.assertEquals(Set.of(-1), dict.keySet());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<Integer, Integer> testedDict = new SoftValueDictionary<>();
+        Map<Integer, Integer> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testIteratorRemoveInWrappedCluster() {
+        Dictionary<Integer, Integer> dict = new SoftValueDictionary<>();
+        // the home slots in the table of 16 slots are 13, 14, 15 and 13, so the cluster wraps to the slot 0
+        for (int key : new int[]{5, 34, 24, 26}) {
+            dict.put(key, key);
+        }
+        List<Integer> visited = new ArrayList<>();
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        while (iterator.hasNext()) {
+            Integer key = iterator.next();
+            visited.add(key);
+            if (key == 5) {
+                iterator.remove();
+            }
+        }
+        Assertions.assertEquals(Set.of(5, 34, 24, 26), new HashSet<>(visited));
+        Assertions.assertEquals(4, visited.size());
+        Assertions.assertEquals(Map.of(34, 34, 24, 24, 26, 26), dict);
+    }
+
+    @Test
+    public void testStressIteratorRemove() {
+        Random random = new Random(SEED);
+        for (int round = 0; round < 1000; round++) {
+            Dictionary<Integer, Integer> testedDict = new SoftValueDictionary<>(16, 0.0, 0.9);
+            Map<Integer, Integer> correctDict = new HashMap<>();
+            int count = random.nextInt(15);
+            while (correctDict.size() < count) {
+                int key = random.nextInt(1000);
+                correctDict.put(key, key);
+                testedDict.put(key, key);
+            }
+            Set<Integer> visited = new HashSet<>();
+            Iterator<Integer> iterator = testedDict.keySet().iterator();
+            while (iterator.hasNext()) {
+                Integer key = iterator.next();
+                Assertions.assertTrue(visited.add(key));
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                    correctDict.remove(key);
+                }
+            }
+            Assertions.assertEquals(count, visited.size());
+            Assertions.assertEquals(correctDict, testedDict);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+public class SwissDictionaryTest {
+    private static final int SEED = 314;
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new SwissDictionary<Integer, Integer>(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new SwissDictionary<Integer, Integer>(16, null);
+        });
+        Dictionary<Integer, Integer> dict = new SwissDictionary<>(0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        for (int i = 0; i < 7; i++) {
+            dict.put(i, i);
+        }
+        Assertions.assertNull(dict.get(7));
+        Assertions.assertEquals(6, dict.get(6));
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<Integer, String> dict = new SwissDictionary<>();
+        dict.put(1, "hello");
+        dict.put(2, "my");
+        dict.put(3, "friend");
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        Iterator<String> values = dict.values().iterator();
+        dict.put(4, "dear");
+        Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testCollidingControlBytes() {
+        // the hashes differ only in the bits choosing the group, so all the control bytes are equal
+        Dictionary<Integer, Integer> dict = new SwissDictionary<>(1 << 12, hash -> hash << 7);
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, i);
+        }
+        for (int i = 0; i < 2000; i++) {
+            Assertions.assertEquals(i < 1000 ? i : null, dict.get(i));
+        }
+        // all the keys fall into the same group
+        Dictionary<Integer, Integer> sameGroup = new SwissDictionary<>(16, hash -> hash & 0x7f);
+        for (int i = 0; i < 1000; i++) {
+            sameGroup.put(i, i);
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            Assertions.assertEquals(i, sameGroup.remove(i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i % 2 == 1 ? i : null, sameGroup.get(i));
+        }
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<Integer, Integer> testedDict = new SwissDictionary<>();
+        Map<Integer, Integer> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testStressChurnWithStableSize() {
+        Dictionary<Integer, Integer> dict = new SwissDictionary<>();
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, i);
+        }
+        for (int i = 1000; i < 1000_000; i++) {
+            Assertions.assertEquals(i - 1000, dict.remove(i - 1000));
+            Assertions.assertNull(dict.put(i, i));
+            Assertions.assertFalse(dict.containsKey(i - 1000));
+        }
+        Assertions.assertEquals(1000, dict.size());
+        for (int i = 1000_000 - 1000; i < 1000_000; i++) {
+            Assertions.assertEquals(i, dict.get(i));
+        }
+    }
+}
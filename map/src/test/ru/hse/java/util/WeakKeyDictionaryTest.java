@@ -0,0 +1,179 @@
+package ru.hse.java.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.*;
+import java.util.Map.Entry;
+
+public class WeakKeyDictionaryTest {
+    private static final int SEED = 419;
+
+    /**
+     * A reference of the dictionary whose mapping is gone, like the one dropped by a resize before it was enqueued.
+     */
+    private static class GoneReference extends WeakReference<Object> implements ReferenceDictionary.HashedReference {
+        private final int hash;
+
+        GoneReference(int hash, ReferenceQueue<Object> queue) {
+            super(new Object(), queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hash() {
+            return hash;
+        }
+    }
+
+    @Test
+    public void testExtremeCases() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new WeakKeyDictionary<Integer, Integer>(-1, 0.25, 0.75);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new WeakKeyDictionary<Integer, Integer>(16, 0.75, 0.75);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            new WeakKeyDictionary<Integer, Integer>(16, 0.25, 1.25);
+        });
+        Dictionary<Integer, Integer> dict = new WeakKeyDictionary<>(0, 0.0, 1.0);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(null, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> dict.put(0, null));
+        Assertions.assertFalse(dict.containsKey(null));
+        Assertions.assertNull(dict.get(null));
+        Assertions.assertNull(dict.remove(null));
+        dict.put(1, 1);
+        dict.put(2, 2);
+        Assertions.assertEquals(Map.of(1, 1, 2, 2), dict);
+    }
+
+    @Test
+    public void testShrinkToMaxLoadFactor() {
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            WeakKeyDictionary<Object, Integer> dict = new WeakKeyDictionary<>(16, 0.5, 1.0);
+            List<Object> keys = new ArrayList<>();
+            for (int i = 0; i < 17; i++) {
+                keys.add(new Object());
+                dict.put(keys.get(i), i);
+            }
+            // halving 32 slots for 16 mappings would leave no free slot to stop the probes
+            dict.remove(keys.remove(16));
+            // the probe for a reference whose mapping is gone passes the mapping with the same hash
+            new GoneReference(HashSpreader.mix(keys.get(0).hashCode()), dict.queue).enqueue();
+            for (int i = 16; i < 40; i++) {
+                keys.add(new Object());
+                Assertions.assertNull(dict.put(keys.get(i), i));
+            }
+            Assertions.assertEquals(40, dict.size());
+            for (int i = 0; i < 40; i++) {
+                Assertions.assertEquals(i, dict.get(keys.get(i)));
+            }
+        });
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        Dictionary<Integer, String> dict = new WeakKeyDictionary<>();
+        Integer[] keys = {1000, 2000, 3000};
+        dict.put(keys[0], "hello");
+        dict.put(keys[1], "my");
+        dict.put(keys[2], "friend");
+        Iterator<Integer> iterator = dict.keySet().iterator();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Integer removed = iterator.next();
+        iterator.remove();
+        Assertions.assertThrows(IllegalStateException.class, iterator::remove);
+        Assertions.assertEquals(2, dict.size());
+        Assertions.assertFalse(dict.containsKey(removed));
+        for (Entry<Integer, String> entry : dict.entrySet()) {
+            entry.setValue(entry.getValue() + "!");
+        }
+        Assertions.assertTrue(dict.values().stream().allMatch(value -> value.endsWith("!")));
+        Iterator<String> values = dict.values().iterator();
+        dict.put(4000, "dear");
+        Assertions.assertThrows(ConcurrentModificationException.class, values::next);
+        dict.values().removeIf(value -> true);
+        Assertions.assertTrue(dict.isEmpty());
+    }
+
+    @Test
+    public void testCollectedKeys() throws InterruptedException {
+        Dictionary<Object, Integer> dict = new WeakKeyDictionary<>();
+        List<Object> alive = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Object key = new Object();
+            dict.put(key, i);
+            if (i % 10 == 0) {
+                alive.add(key);
+            }
+        }
+        Object probe = new Object();
+        for (int attempt = 0; attempt < 100 && dict.size() > alive.size(); attempt++) {
+            System.gc();
+            Thread.sleep(10);
+            // a change drains the queue of the collected keys
+            dict.put(probe, -1);
+            dict.remove(probe);
+        }
+        Assertions.assertEquals(alive.size(), dict.size());
+        for (int i = 0; i < alive.size(); i++) {
+            Assertions.assertEquals(10 * i, dict.get(alive.get(i)));
+        }
+        Assertions.assertEquals(alive.size(), dict.keySet().stream().filter(alive::contains).count());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Dictionary<Integer, Integer> testedDict = new WeakKeyDictionary<>();
+        // the correct dictionary keeps the keys alive
+        Map<Integer, Integer> correctDict = new HashMap<>();
+
+        Random random = new Random(SEED);
+        for (int i = 0; i < 1000_000; i++) {
+            Integer key = random.nextInt(i % 100_000 < 50_000 ? 10_000 : 100);
+            int type = random.nextInt(3);
+            if (type == 0) {
+                Assertions.assertEquals(correctDict.get(key), testedDict.get(key));
+            } else if (type == 1) {
+                Assertions.assertEquals(correctDict.put(key, i), testedDict.put(key, i));
+            } else {
+                Assertions.assertEquals(correctDict.remove(key), testedDict.remove(key));
+            }
+            Assertions.assertEquals(correctDict.size(), testedDict.size());
+        }
+        Assertions.assertEquals(correctDict, testedDict);
+        Assertions.assertEquals(testedDict, correctDict);
+    }
+
+    @Test
+    public void testStressIteratorRemove() {
+        Dictionary<Integer, Integer> testedDict = new WeakKeyDictionary<>(16, 0.0, 0.9);
+        Map<Integer, Integer> correctDict = new HashMap<>();
+        Random random = new Random(SEED);
+        for (int i = 0; i < 100_000; i++) {
+            Integer key = random.nextInt();
+            correctDict.put(key, i);
+            testedDict.put(key, i);
+        }
+        for (Integer key : correctDict.keySet()) {
+            testedDict.put(key, correctDict.get(key));
+        }
+        Iterator<Entry<Integer, Integer>> iterator = testedDict.entrySet().iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            Entry<Integer, Integer> entry = iterator.next();
+            Assertions.assertEquals(correctDict.get(entry.getKey()), entry.getValue());
+            visited++;
+            if (random.nextBoolean()) {
+                iterator.remove();
+                correctDict.remove(entry.getKey());
+            }
+        }
+        Assertions.assertEquals(100_000, visited);
+        Assertions.assertEquals(correctDict, testedDict);
+    }
+}
@@ -0,0 +1,390 @@
+package ru.hse.java.trie;
+
+import java.util.Arrays;
+
+/**
+ * A trie with compressed paths: every edge is labeled by a string, so a chain of nodes
+ * with a single child is kept as one node. The labels are slices of the char arrays
+ * of the added strings, splitting an edge does not copy the symbols.
+ * Every node except the root is terminal or has at least two children.
+ */
+public class RadixTrie implements Trie {
+
+    private static class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private boolean isTerminal = false;
+        private int howManyStartsWithPrefix = 0;
+        /**
+         * The label of the edge from the parent is chars[from, from + length)
+         */
+        private char[] chars;
+        private int from;
+        private int length;
+        /**
+         * The children sorted by the first symbols of their labels
+         */
+        private Node[] children = NO_CHILDREN;
+        private int childCount = 0;
+
+        Node(char[] chars, int from, int length) {
+            this.chars = chars;
+            this.from = from;
+            this.length = length;
+        }
+
+        char symbolAt(int i) {
+            return chars[from + i];
+        }
+
+        /**
+         * @return the index of the child whose label starts with the symbol
+         *         or (-(insertion point) - 1)
+         */
+        private int indexOf(char symbol) {
+            int low = 0;
+            int high = childCount - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char first = children[middle].symbolAt(0);
+                if (first < symbol) {
+                    low = middle + 1;
+                } else if (first > symbol) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -low - 1;
+        }
+
+        /**
+         * @return a child whose label starts with specified symbol or
+         *         null if this child does not exist
+         */
+        public Node getChild(char symbol) {
+            int i = indexOf(symbol);
+            return i >= 0 ? children[i] : null;
+        }
+
+        /**
+         * Add a child, there must be no child with the same first symbol
+         */
+        public void addChild(Node child) {
+            int i = -indexOf(child.symbolAt(0)) - 1;
+            if (childCount == children.length) {
+                children = Arrays.copyOf(children, Math.max(2, 2 * childCount));
+            }
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            children[i] = child;
+            childCount++;
+        }
+
+        /**
+         * Split the label of a child after the first length symbols
+         * @return the new node labeled by the first part, its only child is the old one
+         */
+        public Node splitChild(char symbol, int length) {
+            int i = indexOf(symbol);
+            Node child = children[i];
+            Node middle = new Node(child.chars, child.from, length);
+            middle.howManyStartsWithPrefix = child.howManyStartsWithPrefix;
+            middle.addChild(child);
+            child.from += length;
+            child.length -= length;
+            children[i] = middle;
+            return middle;
+        }
+
+        /**
+         * Delete a child whose label starts with specified symbol
+         */
+        public void deleteChild(char symbol) {
+            int i = indexOf(symbol);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        /**
+         * Append the label of the only child to the label of this node and take its children
+         */
+        public void mergeWithChild() {
+            Node child = children[0];
+            if (child.chars != chars || child.from != from + length) {
+                char[] merged = new char[length + child.length];
+                System.arraycopy(chars, from, merged, 0, length);
+                System.arraycopy(child.chars, child.from, merged, length, child.length);
+                chars = merged;
+                from = 0;
+            }
+            length += child.length;
+            isTerminal = child.isTerminal;
+            children = child.children;
+            childCount = child.childCount;
+        }
+
+        /**
+         * @return the number of the first symbols of the label equal to
+         *         the symbols of the element starting from the position
+         */
+        public int commonPrefixLength(String element, int position) {
+            int limit = Math.min(length, element.length() - position);
+            int i = 0;
+            while (i < limit && symbolAt(i) == element.charAt(position + i)) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    private final Node root = new Node(new char[0], 0, 0);
+    /**
+     * The nodes on the path of the last mutation, it is reused by every {@link #add} and {@link #remove}.
+     */
+    private Node[] path = new Node[16];
+
+    private static boolean isIncorrectString(String element) {
+        for (int i = 0; i < element.length(); i++) {
+            char s = element.charAt(i);
+            if (!('a' <= s && s <= 'z') && !('A' <= s && s <= 'Z')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkString(String element) throws IllegalArgumentException {
+        if (element == null) {
+            throw new IllegalArgumentException("Got a null");
+        } else if (isIncorrectString(element)) {
+            throw new IllegalArgumentException("Got a bad string");
+        }
+    }
+
+    private void ensurePathCapacity(int depth) {
+        if (path.length <= depth) {
+            path = new Node[Math.max(depth + 1, 2 * path.length)];
+        }
+    }
+
+    /**
+     * @return the node labeled by exactly the element or null if there is no such node
+     */
+    private Node findNode(String element) {
+        Node curNode = root;
+        int position = 0;
+        while (position < element.length()) {
+            Node child = curNode.getChild(element.charAt(position));
+            if (child == null || child.commonPrefixLength(element, position) != child.length) {
+                return null;
+            }
+            position += child.length;
+            curNode = child;
+        }
+        return curNode;
+    }
+
+    @Override
+    public boolean add(String element) throws IllegalArgumentException {
+        checkString(element);
+        // a path in the radix trie is never longer than the element
+        ensurePathCapacity(element.length() + 1);
+        Node curNode = root;
+        int depth = 0;
+        path[depth++] = root;
+        int position = 0;
+        while (position < element.length()) {
+            Node child = curNode.getChild(element.charAt(position));
+            if (child == null) {
+                // only the suffix is kept, so the node does not hold the whole element
+                char[] suffix = new char[element.length() - position];
+                element.getChars(position, element.length(), suffix, 0);
+                child = new Node(suffix, 0, suffix.length);
+                curNode.addChild(child);
+            } else {
+                int common = child.commonPrefixLength(element, position);
+                if (common < child.length) {
+                    child = curNode.splitChild(element.charAt(position), common);
+                }
+            }
+            position += child.length;
+            curNode = child;
+            path[depth++] = curNode;
+        }
+        boolean isAdded = !curNode.isTerminal;
+        if (isAdded) {
+            curNode.isTerminal = true;
+            for (int i = depth - 1; i >= 0; i--) {
+                path[i].howManyStartsWithPrefix++;
+            }
+        }
+        Arrays.fill(path, 0, depth, null);
+        return isAdded;
+    }
+
+    @Override
+    public boolean contains(String element) throws IllegalArgumentException {
+        checkString(element);
+        Node node = findNode(element);
+        return node != null && node.isTerminal;
+    }
+
+    @Override
+    public boolean remove(String element) throws IllegalArgumentException {
+        checkString(element);
+        ensurePathCapacity(element.length() + 1);
+        Node curNode = root;
+        int depth = 0;
+        path[depth++] = root;
+        int position = 0;
+        while (position < element.length() && curNode != null) {
+            Node child = curNode.getChild(element.charAt(position));
+            if (child != null && child.commonPrefixLength(element, position) != child.length) {
+                child = null;
+            }
+            if (child != null) {
+                position += child.length;
+                path[depth++] = child;
+            }
+            curNode = child;
+        }
+        boolean isRemoved = curNode != null && curNode.isTerminal;
+        if (isRemoved) {
+            curNode.isTerminal = false;
+            for (int i = depth - 1; i >= 0; i--) {
+                path[i].howManyStartsWithPrefix--;
+            }
+            if (curNode != root) {
+                Node parent = path[depth - 2];
+                if (curNode.childCount == 0) {
+                    parent.deleteChild(curNode.symbolAt(0));
+                    if (parent != root && !parent.isTerminal && parent.childCount == 1) {
+                        parent.mergeWithChild();
+                    }
+                } else if (curNode.childCount == 1) {
+                    curNode.mergeWithChild();
+                }
+            }
+        }
+        Arrays.fill(path, 0, depth, null);
+        return isRemoved;
+    }
+
+    @Override
+    public int size() {
+        return root.howManyStartsWithPrefix;
+    }
+
+    @Override
+    public int howManyStartsWithPrefix(String element) throws IllegalArgumentException {
+        checkString(element);
+        Node curNode = root;
+        int position = 0;
+        while (position < element.length()) {
+            Node child = curNode.getChild(element.charAt(position));
+            if (child == null) {
+                return 0;
+            }
+            int common = child.commonPrefixLength(element, position);
+            if (position + common == element.length()) {
+                // the prefix ends at this node or inside its label
+                return child.howManyStartsWithPrefix;
+            }
+            if (common < child.length) {
+                return 0;
+            }
+            position += child.length;
+            curNode = child;
+        }
+        return curNode.howManyStartsWithPrefix;
+    }
+
+    /**
+     * @return the number of strings which are less than or equal to the element
+     */
+    private int howManyNotGreater(String element) {
+        Node curNode = root;
+        int result = curNode.isTerminal ? 1 : 0;
+        int position = 0;
+        while (position < element.length()) {
+            char symbol = element.charAt(position);
+            Node child = null;
+            for (int i = 0; i < curNode.childCount; i++) {
+                Node next = curNode.children[i];
+                if (next.symbolAt(0) < symbol) {
+                    result += next.howManyStartsWithPrefix;
+                } else {
+                    child = next.symbolAt(0) == symbol ? next : null;
+                    break;
+                }
+            }
+            if (child == null) {
+                break;
+            }
+            int common = child.commonPrefixLength(element, position);
+            if (common < child.length) {
+                // the strings below the child either all go before the element or all go after it
+                boolean isLess = position + common < element.length()
+                        && child.symbolAt(common) < element.charAt(position + common);
+                return result + (isLess ? child.howManyStartsWithPrefix : 0);
+            }
+            position += child.length;
+            curNode = child;
+            result += (curNode.isTerminal ? 1 : 0);
+        }
+        return result;
+    }
+
+    @Override
+    public String nextString(String element, int k) throws IllegalArgumentException {
+        checkString(element);
+        if (k == 0) {
+            return contains(element) ? element : null;
+        }
+
+        int notGreater = howManyNotGreater(element);
+        if (k < 0 || size() - notGreater < k) {
+            return null;
+        }
+        k += notGreater;
+        StringBuilder result = new StringBuilder();
+        Node curNode = root;
+        while (true) {
+            k -= (curNode.isTerminal ? 1 : 0);
+            if (k == 0) {
+                return result.toString();
+            }
+            for (int i = 0; i < curNode.childCount; i++) {
+                Node child = curNode.children[i];
+                if (k > child.howManyStartsWithPrefix) {
+                    k -= child.howManyStartsWithPrefix;
+                } else {
+                    result.append(child.chars, child.from, child.length);
+                    curNode = child;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes including the root
+     */
+    int nodeCount() {
+        int result = 0;
+        Node[] stack = new Node[16];
+        int stackSize = 0;
+        stack[stackSize++] = root;
+        while (stackSize > 0) {
+            Node node = stack[--stackSize];
+            result++;
+            if (stackSize + node.childCount > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * (stackSize + node.childCount));
+            }
+            System.arraycopy(node.children, 0, stack, stackSize, node.childCount);
+            stackSize += node.childCount;
+        }
+        return result;
+    }
+}
@@ -1,21 +1,57 @@
 package ru.hse.java.trie;
 
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Arrays;
 
 public class TrieImpl implements Trie {
 
+    /**
+     * A node keeps its children in a sorted pair of arrays while it has few of them
+     * and in a dense array indexed by the symbol when it has many.
+     */
     private static class Node {
+        private static final int ALPHABET_SIZE = 52;
+        private static final int SPARSE_LIMIT = 8;
+        private static final char[] NO_SYMBOLS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
         private boolean isTerminal = false;
         private int howManyStartsWithPrefix = 0;
-        private final Map<Character, Node> next = new TreeMap<>();
+        private int childCount = 0;
+        /**
+         * The sorted symbols of the children or null if the children are dense
+         */
+        private char[] symbols = NO_SYMBOLS;
+        private Node[] children = NO_CHILDREN;
+
+        /**
+         * @return the index of a symbol in the dense array,
+         *         the upper case letters go before the lower case ones as in the lexicographic order
+         */
+        private static int denseIndex(char symbol) {
+            return symbol <= 'Z' ? symbol - 'A' : symbol - 'a' + 26;
+        }
+
+        private static char denseSymbol(int index) {
+            return (char) (index < 26 ? 'A' + index : 'a' + index - 26);
+        }
+
+        /**
+         * @return the index of the symbol in the sparse arrays or (-(insertion point) - 1)
+         */
+        private int sparseIndex(char symbol) {
+            int i = 0;
+            while (i < childCount && symbols[i] < symbol) {
+                i++;
+            }
+            return i < childCount && symbols[i] == symbol ? i : -i - 1;
+        }
 
         /**
          * @return <tt>true</tt> if this node does not have a child
          *         by specified symbol
          */
         public boolean hasNoChild(char symbol) {
-            return !next.containsKey(symbol);
+            return getChild(symbol) == null;
         }
 
         /**
@@ -23,30 +59,133 @@ public class TrieImpl implements Trie {
          *         null if this child does not exist
          */
         public Node getChild(char symbol) {
-            return next.get(symbol);
+            if (symbols == null) {
+                return children[denseIndex(symbol)];
+            }
+            int i = sparseIndex(symbol);
+            return i >= 0 ? children[i] : null;
         }
 
         /**
          * Add a child by specified symbol if this child does not exist
+         * @return the existing or the added child
          */
-        public void addChild(char symbol) {
-            if (hasNoChild(symbol)) {
-                next.put(symbol, new Node());
+        public Node addChild(char symbol) {
+            if (symbols == null) {
+                int index = denseIndex(symbol);
+                if (children[index] == null) {
+                    children[index] = new Node();
+                    childCount++;
+                }
+                return children[index];
+            }
+            int i = sparseIndex(symbol);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            Node child = new Node();
+            if (childCount == SPARSE_LIMIT) {
+                makeDense();
+                children[denseIndex(symbol)] = child;
+                childCount++;
+                return child;
+            }
+            if (childCount == symbols.length) {
+                int capacity = Math.max(2, 2 * childCount);
+                char[] newSymbols = new char[capacity];
+                Node[] newChildren = new Node[capacity];
+                System.arraycopy(symbols, 0, newSymbols, 0, childCount);
+                System.arraycopy(children, 0, newChildren, 0, childCount);
+                symbols = newSymbols;
+                children = newChildren;
             }
+            System.arraycopy(symbols, i, symbols, i + 1, childCount - i);
+            System.arraycopy(children, i, children, i + 1, childCount - i);
+            symbols[i] = symbol;
+            children[i] = child;
+            childCount++;
+            return child;
         }
 
         /**
          * Delete a child by specified symbol
          */
         public void deleteChild(char symbol) {
-            next.remove(symbol);
+            if (symbols == null) {
+                if (children[denseIndex(symbol)] != null) {
+                    children[denseIndex(symbol)] = null;
+                    childCount--;
+                    if (childCount <= SPARSE_LIMIT / 2) {
+                        makeSparse();
+                    }
+                }
+                return;
+            }
+            int i = sparseIndex(symbol);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(symbols, i + 1, symbols, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        private void makeDense() {
+            Node[] dense = new Node[ALPHABET_SIZE];
+            for (int i = 0; i < childCount; i++) {
+                dense[denseIndex(symbols[i])] = children[i];
+            }
+            symbols = null;
+            children = dense;
+        }
+
+        private void makeSparse() {
+            char[] sparseSymbols = new char[SPARSE_LIMIT];
+            Node[] sparseChildren = new Node[SPARSE_LIMIT];
+            int count = 0;
+            for (int i = 0; i < ALPHABET_SIZE; i++) {
+                if (children[i] != null) {
+                    sparseSymbols[count] = denseSymbol(i);
+                    sparseChildren[count] = children[i];
+                    count++;
+                }
+            }
+            symbols = sparseSymbols;
+            children = sparseChildren;
+        }
+
+        /**
+         * @return the number of slots to pass to {@link #childAt} and {@link #symbolAt},
+         *         the children go in the order of their symbols
+         */
+        public int slotCount() {
+            return symbols == null ? ALPHABET_SIZE : childCount;
+        }
+
+        /**
+         * @return a child in the specified slot or null if the slot is empty
+         */
+        public Node childAt(int slot) {
+            return children[slot];
+        }
+
+        public char symbolAt(int slot) {
+            return symbols == null ? denseSymbol(slot) : symbols[slot];
         }
     }
 
     private final Node root = new Node();
+    /**
+     * The nodes on the path of the last mutation, the node i is reached by the first i symbols.
+     * It is reused by every {@link #add} and {@link #remove}.
+     */
+    private Node[] path = new Node[16];
 
     private static boolean isIncorrectString(String element) {
-        for (char s : element.toCharArray()) {
+        for (int i = 0; i < element.length(); i++) {
+            char s = element.charAt(i);
             if (!('a' <= s && s <= 'z') && !('A' <= s && s <= 'Z')) {
                 return true;
             }
@@ -62,21 +201,32 @@ public class TrieImpl implements Trie {
         }
     }
 
+    private void ensurePathCapacity(int length) {
+        if (path.length <= length) {
+            path = new Node[Math.max(length + 1, 2 * path.length)];
+        }
+    }
+
     @Override
     public boolean add(String element) throws IllegalArgumentException {
         checkString(element);
-        if (contains(element)) {
-            return false;
-        }
+        int length = element.length();
+        ensurePathCapacity(length);
         Node curNode = root;
-        for (char symbol : element.toCharArray()) {
-            curNode.addChild(symbol);
-            curNode.howManyStartsWithPrefix++;
-            curNode = curNode.getChild(symbol);
+        path[0] = root;
+        for (int i = 0; i < length; i++) {
+            curNode = curNode.addChild(element.charAt(i));
+            path[i + 1] = curNode;
         }
-        curNode.howManyStartsWithPrefix++;
-        curNode.isTerminal = true;
-        return true;
+        boolean isAdded = !curNode.isTerminal;
+        if (isAdded) {
+            curNode.isTerminal = true;
+            for (int i = length; i >= 0; i--) {
+                path[i].howManyStartsWithPrefix++;
+            }
+        }
+        Arrays.fill(path, 0, length + 1, null);
+        return isAdded;
     }
 
     @Override
@@ -95,21 +245,31 @@ public class TrieImpl implements Trie {
     @Override
     public boolean remove(String element) throws IllegalArgumentException {
         checkString(element);
-        if (!contains(element)) {
-            return false;
-        }
+        int length = element.length();
+        ensurePathCapacity(length);
         Node curNode = root;
-        for (char symbol : element.toCharArray()) {
-            curNode.howManyStartsWithPrefix--;
-            if (curNode.getChild(symbol).howManyStartsWithPrefix == 1) {
-                curNode.deleteChild(symbol);
-                return true;
+        path[0] = root;
+        for (int i = 0; i < length && curNode != null; i++) {
+            curNode = curNode.getChild(element.charAt(i));
+            path[i + 1] = curNode;
+        }
+        boolean isRemoved = curNode != null && curNode.isTerminal;
+        if (isRemoved) {
+            curNode.isTerminal = false;
+            // the highest node left without strings is cut off together with its subtree
+            int emptyDepth = 0;
+            for (int i = length; i >= 0; i--) {
+                path[i].howManyStartsWithPrefix--;
+                if (i > 0 && path[i].howManyStartsWithPrefix == 0) {
+                    emptyDepth = i;
+                }
+            }
+            if (emptyDepth > 0) {
+                path[emptyDepth - 1].deleteChild(element.charAt(emptyDepth - 1));
             }
-            curNode = curNode.getChild(symbol);
         }
-        curNode.howManyStartsWithPrefix--;
-        curNode.isTerminal = false;
-        return true;
+        Arrays.fill(path, 0, length + 1, null);
+        return isRemoved;
     }
 
     @Override
@@ -140,9 +300,10 @@ public class TrieImpl implements Trie {
         Node curNode = root;
         k += (curNode.isTerminal ? 1 : 0);
         for (char symbol : element.toCharArray()) {
-            for (Map.Entry<Character, Node> pair : curNode.next.entrySet()) {
-                if (pair.getKey() < symbol) {
-                    k += pair.getValue().howManyStartsWithPrefix;
+            for (int slot = 0; slot < curNode.slotCount() && curNode.symbolAt(slot) < symbol; slot++) {
+                Node child = curNode.childAt(slot);
+                if (child != null) {
+                    k += child.howManyStartsWithPrefix;
                 }
             }
             if (curNode.hasNoChild(symbol)) {
@@ -162,16 +323,43 @@ public class TrieImpl implements Trie {
             if (k == 0) {
                 return result.toString();
             }
-            for (Map.Entry<Character, Node> pair : curNode.next.entrySet()) {
-                if (k > pair.getValue().howManyStartsWithPrefix) {
-                    k -= pair.getValue().howManyStartsWithPrefix;
+            for (int slot = 0; slot < curNode.slotCount(); slot++) {
+                Node child = curNode.childAt(slot);
+                if (child == null) {
+                    continue;
+                }
+                if (k > child.howManyStartsWithPrefix) {
+                    k -= child.howManyStartsWithPrefix;
                 } else {
-                    result.append(pair.getKey());
-                    curNode = curNode.getChild(pair.getKey());
+                    result.append(curNode.symbolAt(slot));
+                    curNode = child;
                     break;
                 }
             }
         }
     }
 
+    /**
+     * @return the number of nodes including the root
+     */
+    int nodeCount() {
+        int result = 0;
+        Node[] stack = new Node[16];
+        int stackSize = 0;
+        stack[stackSize++] = root;
+        while (stackSize > 0) {
+            Node node = stack[--stackSize];
+            result++;
+            if (stackSize + node.childCount > stack.length) {
+                stack = Arrays.copyOf(stack, 2 * (stackSize + node.childCount));
+            }
+            for (int slot = 0; slot < node.slotCount(); slot++) {
+                Node child = node.childAt(slot);
+                if (child != null) {
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,165 @@
+package ru.hse.java.trie;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+public class RadixTrieTest {
+
+    @Test
+    public void testIncorrectArguments() {
+        Trie trie = new RadixTrie();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            trie.add(null);
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            trie.remove("hello\n");
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            trie.howManyStartsWithPrefix("tik-tak-toe");
+        });
+        Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            trie.nextString("=)", 5);
+        });
+    }
+
+    @Test
+    public void testSplitAndMerge() {
+        RadixTrie trie = new RadixTrie();
+        Assertions.assertTrue(trie.add("romane"));
+        Assertions.assertEquals(2, trie.nodeCount());
+        Assertions.assertTrue(trie.add("romanus"));
+        Assertions.assertTrue(trie.add("romulus"));
+        Assertions.assertTrue(trie.add("rom"));
+        Assertions.assertFalse(trie.add("romanus"));
+        Assertions.assertEquals(6, trie.nodeCount());
+        Assertions.assertFalse(trie.contains("ro"));
+        Assertions.assertFalse(trie.contains("roma"));
+        Assertions.assertFalse(trie.contains("romanusa"));
+        Assertions.assertEquals(4, trie.howManyStartsWithPrefix("ro"));
+        Assertions.assertEquals(2, trie.howManyStartsWithPrefix("roma"));
+        Assertions.assertEquals(0, trie.howManyStartsWithPrefix("romb"));
+
+        Assertions.assertFalse(trie.remove("roman"));
+        Assertions.assertTrue(trie.remove("romane"));
+        // "roman" and "us" are merged back into a single edge
+        Assertions.assertEquals(4, trie.nodeCount());
+        Assertions.assertTrue(trie.contains("romanus"));
+        Assertions.assertTrue(trie.remove("rom"));
+        Assertions.assertEquals(4, trie.nodeCount());
+        Assertions.assertTrue(trie.remove("romulus"));
+        Assertions.assertEquals(2, trie.nodeCount());
+        Assertions.assertEquals(1, trie.size());
+        Assertions.assertEquals("romanus", trie.nextString("", 1));
+        Assertions.assertTrue(trie.add(""));
+        Assertions.assertTrue(trie.remove("romanus"));
+        Assertions.assertEquals(1, trie.nodeCount());
+        Assertions.assertTrue(trie.contains(""));
+    }
+
+    @Test
+    public void testNextStringMethod() {
+        Trie trie = new RadixTrie();
+        trie.add("");
+        trie.add("Apple");
+        trie.add("apple");
+        trie.add("applet");
+        trie.add("apply");
+        Assertions.assertEquals("", trie.nextString("", 0));
+        Assertions.assertEquals("Apple", trie.nextString("", 1));
+        Assertions.assertEquals("apple", trie.nextString("B", 1));
+        Assertions.assertEquals("apple", trie.nextString("app", 1));
+        Assertions.assertEquals("applet", trie.nextString("apple", 1));
+        Assertions.assertEquals("apply", trie.nextString("appleu", 1));
+        Assertions.assertEquals("apply", trie.nextString("Apple", 3));
+        Assertions.assertNull(trie.nextString("Apple", 4));
+        Assertions.assertNull(trie.nextString("applz", 1));
+        Assertions.assertNull(trie.nextString("app", 0));
+    }
+
+    @Test
+    public void testNodeCount() {
+        RadixTrie testedTrie = new RadixTrie();
+        TrieImpl correctTrie = new TrieImpl();
+        Random random = new Random(314);
+        for (int i = 0; i < 10_000; i++) {
+            String element = makeIdentifier(random);
+            testedTrie.add(element);
+            correctTrie.add(element);
+        }
+        Assertions.assertEquals(correctTrie.size(), testedTrie.size());
+        // every node except the root is terminal or branches, while the plain trie has a node per symbol
+        Assertions.assertTrue(testedTrie.nodeCount() <= 2 * testedTrie.size());
+        Assertions.assertTrue(3 * testedTrie.nodeCount() < correctTrie.nodeCount());
+    }
+
+    @Test
+    public void testStressBasicMethods() {
+        Trie testedTrie = new RadixTrie();
+        TreeSet<String> correctTrie = new TreeSet<>();
+
+        int seed = 314;
+        Random random = new Random(seed);
+        for (int i = 0; i < 100_000; i++) {
+            String element = i % 2 == 0 ? makeIdentifier(random) : makeString(random);
+            int type = random.nextInt(5);
+            if (type == 0 || type == 1) {
+                boolean tested = type == 0 ? testedTrie.add(element) : testedTrie.remove(element);
+                boolean correct = type == 0 ? correctTrie.add(element) : correctTrie.remove(element);
+                Assertions.assertEquals(correct, tested);
+            } else if (type == 2) {
+                Assertions.assertEquals(correctTrie.contains(element), testedTrie.contains(element));
+            } else if (type == 3) {
+                int correct = correctTrie.subSet(element, element + Character.MAX_VALUE).size();
+                Assertions.assertEquals(correct, testedTrie.howManyStartsWithPrefix(element));
+            } else {
+                Assertions.assertEquals(correctTrie.higher(element), testedTrie.nextString(element, 1));
+            }
+            Assertions.assertEquals(correctTrie.size(), testedTrie.size());
+        }
+    }
+
+    @Test
+    public void testStressNextStringMethod() {
+        Trie testedTrie = new RadixTrie();
+        Trie correctTrie = new TrieImpl();
+
+        int seed = 314;
+        Random random = new Random(seed);
+        for (int i = 0; i < 5000; i++) {
+            String element = makeIdentifier(random);
+            testedTrie.add(element);
+            correctTrie.add(element);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            String element = i % 2 == 0 ? makeIdentifier(random) : makeString(random);
+            int k = random.nextInt(6000);
+            Assertions.assertEquals(correctTrie.nextString(element, k), testedTrie.nextString(element, k));
+        }
+    }
+
+    private String makeString(Random random) {
+        StringBuilder buffer = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int j = 0; j < length; j++) {
+            buffer.append((char) ('a' + random.nextInt(26)));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return a camel case identifier made of a few common words
+     */
+    private String makeIdentifier(Random random) {
+        String[] words = {"get", "set", "is", "Value", "Node", "Child", "Count", "Prefix", "String", "Trie"};
+        StringBuilder buffer = new StringBuilder();
+        int length = random.nextInt(5);
+        for (int j = 0; j < length; j++) {
+            buffer.append(words[random.nextInt(words.length)]);
+        }
+        return buffer.toString();
+    }
+}
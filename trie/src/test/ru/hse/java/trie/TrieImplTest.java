@@ -331,6 +331,43 @@ public class TrieImplTest {
         }
     }
 
+    @Test
+    public void testStressMixedCaseMethods() {
+        Trie testedTrie = new TrieImpl();
+        TreeSet<String> correctTrie = new TreeSet<>();
+
+        int seed = 314;
+        Random random = new Random(seed);
+        for (int i = 0; i < 100_000; i++) {
+            // the fan-out of the nodes grows and shrinks many times
+            String element = makeMixedCaseString(random, i % 20_000 < 10_000 ? 52 : 6);
+            int type = random.nextInt(5);
+            if (type == 0 || type == 1) {
+                boolean tested = type == 0 ? testedTrie.add(element) : testedTrie.remove(element);
+                boolean correct = type == 0 ? correctTrie.add(element) : correctTrie.remove(element);
+                Assertions.assertEquals(correct, tested);
+            } else if (type == 2) {
+                Assertions.assertEquals(correctTrie.contains(element), testedTrie.contains(element));
+            } else if (type == 3) {
+                int correct = correctTrie.subSet(element, element + Character.MAX_VALUE).size();
+                Assertions.assertEquals(correct, testedTrie.howManyStartsWithPrefix(element));
+            } else {
+                Assertions.assertEquals(correctTrie.higher(element), testedTrie.nextString(element, 1));
+            }
+            Assertions.assertEquals(correctTrie.size(), testedTrie.size());
+        }
+    }
+
+    private String makeMixedCaseString(Random random, int alphabetSize) {
+        StringBuilder buffer = new StringBuilder();
+        int length = random.nextInt(4);
+        for (int j = 0; j < length; j++) {
+            int index = random.nextInt(alphabetSize) * (52 / alphabetSize);
+            buffer.append((char) (index < 26 ? 'A' + index : 'a' + index - 26));
+        }
+        return buffer.toString();
+    }
+
     private String makeString(Random random) {
         StringBuilder buffer = new StringBuilder();
         int length = random.nextInt(8);